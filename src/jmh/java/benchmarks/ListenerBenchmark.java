@@ -0,0 +1,128 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testng.ISuite;
+import org.testng.ITestResult;
+import utils.TestListener;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the TestListener callbacks per test and of writing the report at the end of the suite,
+ * for both report modes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListenerBenchmark {
+
+    /**
+     * A listener with an open report.
+     */
+    @State(Scope.Benchmark)
+    public static class ListenerState {
+
+        @Param({"extent", "streaming"})
+        public String reportMode;
+
+        TestListener listener;
+        ISuite suite;
+        PrintStream console;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            System.setProperty("report.mode", reportMode);
+            // The listener prints a line per callback; keep formatting it but do not flood the benchmark output
+            console = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            listener = new TestListener();
+            suite = TestNgStubs.suite("ListenerBenchmark");
+            listener.onStart(suite);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            listener.onFinish(suite);
+            System.setOut(console);
+        }
+    }
+
+    /**
+     * onTestStart and onTestSuccess for one passed test.
+     */
+    @Benchmark
+    public void passedTest(ListenerState state) {
+        ITestResult result = TestNgStubs.passedResult("passedTest", "chrome");
+        state.listener.onTestStart(result);
+        state.listener.onTestSuccess(result);
+    }
+
+    /**
+     * Writing the report of a suite with a fixed number of passed tests: Extent flush, or rendering the journal.
+     */
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    @Benchmark
+    public void writeReport(ReportState state) {
+        state.listener.onFinish(state.suite);
+    }
+
+    /**
+     * A listener that has recorded a suite's worth of results and has not written the report yet.
+     */
+    @State(Scope.Thread)
+    public static class ReportState {
+
+        @Param({"extent", "streaming"})
+        public String reportMode;
+
+        @Param({"1000"})
+        public int tests;
+
+        TestListener listener;
+        ISuite suite;
+        PrintStream console;
+
+        @Setup(Level.Trial)
+        public void silence() {
+            System.setProperty("report.mode", reportMode);
+            console = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @Setup(Level.Invocation)
+        public void record() {
+            listener = new TestListener();
+            suite = TestNgStubs.suite("ReportBenchmark");
+            listener.onStart(suite);
+            for (int i = 0; i < tests; i++) {
+                ITestResult result = TestNgStubs.passedResult("test" + i, i % 2 == 0 ? "chrome" : "firefox");
+                listener.onTestStart(result);
+                listener.onTestSuccess(result);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void restore() {
+            System.setOut(console);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the log statements BaseClass issues per action, from four threads at once like a parallel run.
+ * The configuration is the one the forked JVM is started with (log4j2-jmh.xml unless overridden).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggerBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger("ChromeLogger");
+    private static final By locator = By.id("login-button");
+
+    /**
+     * The MDC values BaseClass sets for a test method.
+     */
+    @State(Scope.Thread)
+    public static class TestThread {
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            MDC.put("browser", "chrome");
+            MDC.put("testId", "LoggerBenchmark.action_t" + Thread.currentThread().getId());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * The messages of one click, one sendKeys and one getText.
+     */
+    @Benchmark
+    public void action(TestThread thread) {
+        logger.info("Clicked element: {}", locator);
+        logger.info("Entered {} character(s) into element: {}", 12, locator);
+        logger.info("Retrieved text '{}' from element: {}", "Products", locator);
+    }
+}
@@ -0,0 +1,151 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pages.DashboardPage;
+import pages.LoginPage;
+import utils.DriverSession;
+import utils.LocalAppServer;
+import utils.TimeoutPolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Framework overhead of the page object actions: waits, locator cache, logging and the
+ * click/sendKeys/getText helpers of BaseClass, measured against the stub driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageActionBenchmark {
+
+    /**
+     * A session on one page of the local application stand-in, created with the wait settings of the parameters.
+     */
+    @State(Scope.Thread)
+    public abstract static class PageState {
+
+        @Param({"batched", "event", "polling"})
+        public String waitStrategy;
+
+        @Param({"true", "false"})
+        public String locatorCache;
+
+        String baseUrl;
+        StubWebDriver driver;
+        DriverSession session;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // ElementStateEngine and BaseClass read these when the session and page objects are created
+            System.setProperty("wait.strategy", waitStrategy);
+            System.setProperty("locator.cache", locatorCache);
+            baseUrl = LocalAppServer.start();
+            driver = new StubWebDriver();
+            driver.get(baseUrl + page());
+            session = new DriverSession("chrome", baseUrl, driver);
+            createPage();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            LocalAppServer.stop();
+        }
+
+        abstract String page();
+
+        abstract void createPage();
+    }
+
+    /**
+     * A session on the login page.
+     */
+    @State(Scope.Thread)
+    public static class LoginState extends PageState {
+        LoginPage loginPage;
+
+        @Override
+        void createPage() {
+            loginPage = new LoginPage(session);
+        }
+
+        @Override
+        String page() {
+            return "index.html";
+        }
+    }
+
+    /**
+     * A session on the inventory page.
+     */
+    @State(Scope.Thread)
+    public static class InventoryState extends PageState {
+        DashboardPage dashboardPage;
+
+        @Override
+        void createPage() {
+            dashboardPage = new DashboardPage(session);
+        }
+
+        @Override
+        String page() {
+            return "inventory.html";
+        }
+    }
+
+    /**
+     * Batched wait for the login form, two sendKeys and a click.
+     */
+    @Benchmark
+    public void login(LoginState state) {
+        state.loginPage.login("standard_user", "secret_sauce");
+    }
+
+    /**
+     * Two sendKeys and a click, each with its own wait.
+     */
+    @Benchmark
+    public void loginFieldByField(LoginState state) {
+        state.loginPage.enterUsername("standard_user");
+        state.loginPage.enterPassword("secret_sauce");
+        state.loginPage.clickLogin();
+    }
+
+    /**
+     * Wait for an XPath-located element and read its text.
+     */
+    @Benchmark
+    public String getText(LoginState state) {
+        return state.loginPage.emptyGetUserNameErrorMessage();
+    }
+
+    /**
+     * A click followed by a visibility wait.
+     */
+    @Benchmark
+    public void clickAndWait(InventoryState state) {
+        state.dashboardPage.addToCar();
+    }
+
+    /**
+     * A page load from the local application server followed by the document ready wait.
+     */
+    @Benchmark
+    public void loadPage(InventoryState state) {
+        state.driver.get(state.baseUrl + "inventory.html");
+        state.session.getStateEngine().waitForDocumentReady(TimeoutPolicy.get(TimeoutPolicy.Operation.PAGE_READY));
+    }
+}
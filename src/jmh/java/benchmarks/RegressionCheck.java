@@ -0,0 +1,99 @@
+package benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with a baseline result file and fails when a benchmark got slower
+ * by more than the threshold. Benchmarks are matched by name and parameters; lower scores are better
+ * for time modes and higher scores for throughput.
+ * <pre>
+ * java benchmarks.RegressionCheck target/jmh-result.json jmh-baseline.json 10
+ * </pre>
+ */
+public class RegressionCheck {
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * Runs the comparison and exits with status 1 if any benchmark regressed.
+     *
+     * @param args The result file, the baseline file and the allowed slowdown in percent.
+     * @throws IOException If a file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RegressionCheck <result.json> <baseline.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        Path result = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        if (!Files.exists(baseline)) {
+            System.out.println("No JMH baseline at " + baseline + "; copy " + result + " there to start tracking regressions.");
+            return;
+        }
+
+        Map<String, JsonObject> current = load(result);
+        Map<String, JsonObject> previous = load(baseline);
+        int regressions = 0;
+        for (Map.Entry<String, JsonObject> entry : new TreeMap<>(current).entrySet()) {
+            JsonObject before = previous.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s%n", entry.getKey());
+                continue;
+            }
+            double now = score(entry.getValue());
+            double then = score(before);
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().get("mode").getAsString());
+            double slowdown = (higherIsBetter ? then - now : now - then) / then * 100;
+            boolean regressed = slowdown > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regressed ? "REGRESSED" : "ok",
+                    entry.getKey(), then, now, entry.getValue().getAsJsonObject("primaryMetric").get("scoreUnit").getAsString(),
+                    slowdown);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the baseline by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a JMH result file.
+     *
+     * @param path The JSON file written with -rf json.
+     * @return The results keyed by benchmark name and parameters.
+     * @throws IOException If the file cannot be read.
+     */
+    private static Map<String, JsonObject> load(Path path) throws IOException {
+        Map<String, JsonObject> results = new LinkedHashMap<>();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            for (JsonElement element : gson.fromJson(reader, JsonArray.class)) {
+                JsonObject benchmark = element.getAsJsonObject();
+                String key = benchmark.get("benchmark").getAsString();
+                if (benchmark.has("params")) {
+                    key += " " + new TreeMap<>(benchmark.getAsJsonObject("params").asMap());
+                }
+                results.put(key, benchmark);
+            }
+        }
+        return results;
+    }
+
+    private static double score(JsonObject benchmark) {
+        return benchmark.getAsJsonObject("primaryMetric").get("score").getAsDouble();
+    }
+}
@@ -0,0 +1,587 @@
+package benchmarks;
+
+import org.openqa.selenium.Alert;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoAlertPresentException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WindowType;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.Logs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * WebDriver that answers every command in-process, so benchmarks measure the framework code around
+ * the driver rather than a browser. Pages are fetched over HTTP from the {@link utils.LocalAppServer};
+ * a locator matches when the id, class or quoted literal it refers to occurs in the page source.
+ * The in-browser wait scripts of ElementStateEngine are answered as if every condition held. Navigation, window,
+ * cookie and timeout commands are accepted without effect beyond keeping cookies and settings in memory.
+ */
+public class StubWebDriver implements WebDriver, JavascriptExecutor, TakesScreenshot {
+
+    // Smallest valid PNG (1x1 transparent pixel), returned for screenshots
+    private static final byte[] PNG = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=");
+    private static final Pattern QUOTED = Pattern.compile("'([^']*)'|\"([^\"]*)\"");
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private String url = "about:blank";
+    private String source = "";
+    // Elements resolved on the current page, so repeated lookups return the same instance like a real driver
+    private final Map<String, StubElement> elements = new HashMap<>();
+    // Cookies of the session, by name; kept so the pool reset and the login state cache have something to work on
+    private final Map<String, Cookie> cookies = new LinkedHashMap<>();
+    private final TargetLocator targetLocator = new StubTargetLocator();
+    private final Navigation navigation = new StubNavigation();
+    private final Options options = new StubOptions();
+
+    @Override
+    public void get(String url) {
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            this.url = url;
+            this.source = response.body();
+            elements.clear();
+        } catch (IOException e) {
+            throw new WebDriverException("Failed to load " + url, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebDriverException("Interrupted while loading " + url, e);
+        }
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return url;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Swag Labs";
+    }
+
+    @Override
+    public List<WebElement> findElements(By by) {
+        StubElement element = resolve(by);
+        return element == null ? Collections.emptyList() : List.of(element);
+    }
+
+    @Override
+    public WebElement findElement(By by) {
+        StubElement element = resolve(by);
+        if (element == null) {
+            throw new NoSuchElementException("No element matches " + by);
+        }
+        return element;
+    }
+
+    @Override
+    public String getPageSource() {
+        return source;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void quit() {
+    }
+
+    @Override
+    public Set<String> getWindowHandles() {
+        return Set.of(getWindowHandle());
+    }
+
+    @Override
+    public String getWindowHandle() {
+        return "stub-window";
+    }
+
+    @Override
+    public TargetLocator switchTo() {
+        return targetLocator;
+    }
+
+    @Override
+    public Navigation navigate() {
+        return navigation;
+    }
+
+    @Override
+    public Options manage() {
+        return options;
+    }
+
+    @Override
+    public Object executeScript(String script, Object... args) {
+        if (script.contains("document.readyState")) {
+            return "complete";
+        }
+        if (script.contains("function evaluate(")) {
+            return evaluate(args);
+        }
+        return null;
+    }
+
+    @Override
+    public Object executeAsyncScript(String script, Object... args) {
+        if (script.contains("function evaluate(")) {
+            return evaluate(args);
+        }
+        return Boolean.TRUE; // document-ready-async.js
+    }
+
+    @Override
+    public <X> X getScreenshotAs(OutputType<X> target) {
+        return target.convertFromPngBytes(PNG);
+    }
+
+    /**
+     * Answers the element state scripts: [using, value, state, expectedText, cachedElement] entries
+     * in, {ready, elements, cached, url} out. A cached element is reused while the URL is unchanged.
+     *
+     * @param args The script arguments: the encoded conditions and the URL the cache belongs to.
+     * @return The script result.
+     */
+    private Map<String, Object> evaluate(Object... args) {
+        List<?> conditions = (List<?>) args[0];
+        boolean useCache = url.equals(args[1]);
+        List<Object> matched = new ArrayList<>();
+        List<Object> cached = new ArrayList<>();
+        Map<String, Object> result = new HashMap<>();
+        result.put("url", url);
+        for (int i = 0; i < conditions.size(); i++) {
+            List<?> condition = (List<?>) conditions.get(i);
+            Object element = useCache ? condition.get(4) : null;
+            cached.add(element != null);
+            if (element == null) {
+                element = resolve((String) condition.get(0), (String) condition.get(1));
+            }
+            if (element == null) {
+                result.put("ready", false);
+                result.put("pending", i);
+                return result;
+            }
+            matched.add(element);
+        }
+        result.put("ready", true);
+        result.put("elements", matched);
+        result.put("cached", cached);
+        return result;
+    }
+
+    private StubElement resolve(By by) {
+        if (!(by instanceof By.Remotable)) {
+            throw new UnsupportedOperationException("Locator not supported by the stub driver: " + by);
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) by).getRemoteParameters();
+        return resolve(parameters.using(), String.valueOf(parameters.value()));
+    }
+
+    /**
+     * Resolves a W3C locator against the page source.
+     *
+     * @param using The locator strategy.
+     * @param value The locator value.
+     * @return The element, or null if the page does not contain what the locator refers to.
+     */
+    private StubElement resolve(String using, String value) {
+        String key = using + ":" + value;
+        StubElement element = elements.get(key);
+        if (element != null) {
+            return element;
+        }
+        String text = null;
+        boolean found;
+        if ("id".equals(using) || "name".equals(using)) {
+            found = source.contains(using + "=\"" + value + "\"");
+        } else if ("class name".equals(using)) {
+            found = Pattern.compile("class=\"([^\"]*\\s)?" + Pattern.quote(value) + "[\\s\"]").matcher(source).find();
+        } else if ("css selector".equals(using) && value.startsWith("#")) {
+            found = source.contains("id=\"" + value.substring(1).replace("\\", "") + "\"");
+        } else if ("css selector".equals(using) && value.startsWith(".")) {
+            found = Pattern.compile("class=\"([^\"]*\\s)?" + Pattern.quote(value.substring(1)) + "[\\s\"]").matcher(source).find();
+        } else {
+            // XPath and other selectors: every quoted literal must occur in the page
+            found = true;
+            Matcher matcher = QUOTED.matcher(value);
+            while (matcher.find()) {
+                text = matcher.group(1) != null ? matcher.group(1) : matcher.group(2);
+                found &= source.contains(text);
+            }
+        }
+        if (!found) {
+            return null;
+        }
+        element = new StubElement(text != null ? text : value);
+        elements.put(key, element);
+        return element;
+    }
+
+    /**
+     * Single window without frames or alerts; switching is a no-op.
+     */
+    private class StubTargetLocator implements TargetLocator {
+
+        @Override
+        public WebDriver frame(int index) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(String nameOrId) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver frame(WebElement frameElement) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver parentFrame() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver window(String nameOrHandle) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver newWindow(WindowType typeHint) {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebDriver defaultContent() {
+            return StubWebDriver.this;
+        }
+
+        @Override
+        public WebElement activeElement() {
+            return new StubElement("");
+        }
+
+        @Override
+        public Alert alert() {
+            throw new NoAlertPresentException("The stub driver never shows alerts");
+        }
+    }
+
+    /**
+     * Navigation without history: back and forward stay on the current page, refresh loads it again.
+     */
+    private class StubNavigation implements Navigation {
+
+        @Override
+        public void back() {
+        }
+
+        @Override
+        public void forward() {
+        }
+
+        @Override
+        public void to(String url) {
+            get(url);
+        }
+
+        @Override
+        public void to(URL url) {
+            get(url.toString());
+        }
+
+        @Override
+        public void refresh() {
+            get(url);
+        }
+    }
+
+    /**
+     * Cookies kept in memory, timeouts that are only remembered, and a fixed window.
+     */
+    private class StubOptions implements Options {
+
+        private final Timeouts timeouts = new StubTimeouts();
+        private final Window window = new StubWindow();
+
+        @Override
+        public void addCookie(Cookie cookie) {
+            cookies.put(cookie.getName(), cookie);
+        }
+
+        @Override
+        public void deleteCookieNamed(String name) {
+            cookies.remove(name);
+        }
+
+        @Override
+        public void deleteCookie(Cookie cookie) {
+            cookies.remove(cookie.getName());
+        }
+
+        @Override
+        public void deleteAllCookies() {
+            cookies.clear();
+        }
+
+        @Override
+        public Set<Cookie> getCookies() {
+            return new LinkedHashSet<>(cookies.values());
+        }
+
+        @Override
+        public Cookie getCookieNamed(String name) {
+            return cookies.get(name);
+        }
+
+        @Override
+        public Timeouts timeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public Window window() {
+            return window;
+        }
+
+        @Override
+        public Logs logs() {
+            return new Logs() {
+                @Override
+                public LogEntries get(String logType) {
+                    return new LogEntries(Collections.emptyList());
+                }
+
+                @Override
+                public Set<String> getAvailableLogTypes() {
+                    return Collections.emptySet();
+                }
+            };
+        }
+    }
+
+    /**
+     * Timeouts that are remembered but never wait, as every command answers at once.
+     */
+    private static class StubTimeouts implements Timeouts {
+
+        private Duration implicitWait = Duration.ZERO;
+        private Duration scriptTimeout = Duration.ofSeconds(30);
+        private Duration pageLoadTimeout = Duration.ofSeconds(300);
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Timeouts implicitlyWait(long time, TimeUnit unit) {
+            return implicitlyWait(Duration.ofNanos(unit.toNanos(time)));
+        }
+
+        @Override
+        public Timeouts implicitlyWait(Duration duration) {
+            implicitWait = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getImplicitWaitTimeout() {
+            return implicitWait;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Timeouts setScriptTimeout(long time, TimeUnit unit) {
+            return scriptTimeout(Duration.ofNanos(unit.toNanos(time)));
+        }
+
+        @Override
+        public Timeouts scriptTimeout(Duration duration) {
+            scriptTimeout = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getScriptTimeout() {
+            return scriptTimeout;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public Timeouts pageLoadTimeout(long time, TimeUnit unit) {
+            return pageLoadTimeout(Duration.ofNanos(unit.toNanos(time)));
+        }
+
+        @Override
+        public Timeouts pageLoadTimeout(Duration duration) {
+            pageLoadTimeout = duration;
+            return this;
+        }
+
+        @Override
+        public Duration getPageLoadTimeout() {
+            return pageLoadTimeout;
+        }
+    }
+
+    /**
+     * Window of a fixed position whose size can be set.
+     */
+    private static class StubWindow implements Window {
+
+        private Dimension size = new Dimension(1920, 1080);
+
+        @Override
+        public Dimension getSize() {
+            return size;
+        }
+
+        @Override
+        public void setSize(Dimension targetSize) {
+            size = targetSize;
+        }
+
+        @Override
+        public Point getPosition() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        public void setPosition(Point targetPosition) {
+        }
+
+        @Override
+        public void maximize() {
+        }
+
+        @Override
+        public void minimize() {
+        }
+
+        @Override
+        public void fullscreen() {
+        }
+    }
+
+    /**
+     * Element that is always displayed and enabled, with a fixed text.
+     */
+    private static class StubElement implements WebElement {
+
+        private final String text;
+
+        private StubElement(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public void click() {
+        }
+
+        @Override
+        public void submit() {
+        }
+
+        @Override
+        public void sendKeys(CharSequence... keysToSend) {
+        }
+
+        @Override
+        public void clear() {
+        }
+
+        @Override
+        public String getTagName() {
+            return "div";
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public boolean isSelected() {
+            return false;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        @Override
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            throw new NoSuchElementException("The stub driver does not support nested lookups: " + by);
+        }
+
+        @Override
+        public boolean isDisplayed() {
+            return true;
+        }
+
+        @Override
+        public Point getLocation() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        public Dimension getSize() {
+            return new Dimension(100, 20);
+        }
+
+        @Override
+        public Rectangle getRect() {
+            return new Rectangle(getLocation(), getSize());
+        }
+
+        @Override
+        public String getCssValue(String propertyName) {
+            return "";
+        }
+
+        @Override
+        public <X> X getScreenshotAs(OutputType<X> target) {
+            return target.convertFromPngBytes(PNG);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import org.testng.IClass;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Minimal TestNG suite and result objects for driving TestListener outside a TestNG run.
+ * Only the getters the listener calls return values; every other method returns null, zero or false.
+ */
+public class TestNgStubs {
+
+    /**
+     * Creates a suite with the given name.
+     *
+     * @param name The suite name.
+     * @return The suite.
+     */
+    public static ISuite suite(String name) {
+        return stub(ISuite.class, Map.of("getName", name));
+    }
+
+    /**
+     * Creates the result of a passed test method run on a browser.
+     *
+     * @param methodName The test method name.
+     * @param browser    The browser parameter of the &lt;test&gt; block.
+     * @return The result.
+     */
+    public static ITestResult passedResult(String methodName, String browser) {
+        XmlTest xmlTest = new XmlTest(new XmlSuite());
+        xmlTest.setParameters(Map.of("browser", browser));
+        ITestContext context = stub(ITestContext.class, Map.of("getCurrentXmlTest", xmlTest, "getName", browser));
+        ITestNGMethod method = stub(ITestNGMethod.class, Map.of("getMethodName", methodName));
+        IClass testClass = stub(IClass.class, Map.of("getRealClass", TestNgStubs.class, "getName", TestNgStubs.class.getName()));
+        long now = System.currentTimeMillis();
+        return stub(ITestResult.class, Map.of(
+                "getName", methodName,
+                "getMethod", method,
+                "getTestContext", context,
+                "getTestClass", testClass,
+                "getStatus", ITestResult.SUCCESS,
+                "getStartMillis", now,
+                "getEndMillis", now + 1));
+    }
+
+    /**
+     * Creates a proxy answering the given getters.
+     *
+     * @param type   The interface to implement.
+     * @param values Return values by method name.
+     * @param <T>    The interface type.
+     * @return The proxy.
+     */
+    private static <T> T stub(Class<T> type, Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (values.containsKey(method.getName())) {
+                return values.get(method.getName());
+            }
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + values;
+                default:
+                    break;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == int.class) {
+                return 0;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            return null;
+        }));
+    }
+}
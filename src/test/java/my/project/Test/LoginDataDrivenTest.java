@@ -0,0 +1,93 @@
+package my.project.Test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+import org.testng.asserts.SoftAssert;
+import pages.BaseClass;
+import pages.LoginPage;
+import utils.DataRows;
+import utils.TestConfig;
+
+import java.util.Iterator;
+
+/**
+ * Data-driven login tests. The rows are read from the data sets configured in test-config.properties
+ * (data.login.credentials, data.login.negative) and run in parallel on the data provider threads
+ * (-DdataProviderThreadCount=N). TestNG reads every row of a parallel data provider before the first invocation,
+ * so a data set is held in memory as a whole; split very large ones between workers with data.shard.
+ */
+@Listeners({utils.TestListener.class, utils.SuiteLifecycleListener.class})
+public class LoginDataDrivenTest extends BaseClass {
+
+    // Logger instance
+    private static final Logger logger = LoggerFactory.getLogger(LoginDataDrivenTest.class);
+
+    /**
+     * Returns the LoginPage bound to the current thread's session.
+     *
+     * @return The LoginPage object.
+     */
+    private LoginPage loginPage() {
+        return session().page(LoginPage.class, LoginPage::new);
+    }
+
+    /**
+     * Streams the credential matrix: valid users, the locked out user and the empty and wrong credentials.
+     *
+     * @return One row per login attempt: scenario, username, password, expected error ("" for a successful login).
+     */
+    @DataProvider(name = "credentials", parallel = true)
+    public Iterator<Object[]> credentials() {
+        return DataRows.open(TestConfig.get("data.login.credentials", "data/login-credentials.csv"));
+    }
+
+    /**
+     * Streams the negative inputs: case variations, whitespace, injection attempts and unusual characters.
+     *
+     * @return One row per login attempt: scenario, username, password, expected error.
+     */
+    @DataProvider(name = "negativeInputs", parallel = true)
+    public Iterator<Object[]> negativeInputs() {
+        return DataRows.open(TestConfig.get("data.login.negative", "data/login-negative-inputs.yaml"));
+    }
+
+    /**
+     * Test to verify the login form with a row of the credential matrix.
+     */
+    @Test(dataProvider = "credentials")
+    public void loginWithCredentials(String scenario, String username, String password, String expectedError) {
+        verifyLogin(scenario, username, password, expectedError);
+    }
+
+    /**
+     * Test to verify the login form rejects a row of the negative inputs.
+     */
+    @Test(dataProvider = "negativeInputs")
+    public void loginWithNegativeInput(String scenario, String username, String password, String expectedError) {
+        verifyLogin(scenario, username, password, expectedError);
+    }
+
+    /**
+     * Logs in and checks the outcome: the inventory page if no error is expected, otherwise the error message.
+     */
+    private void verifyLogin(String scenario, String username, String password, String expectedError) {
+        logger.info("Starting login scenario: {}", scenario);
+        SoftAssert softAssert = new SoftAssert(); // Initialize SoftAssert for flexible assertions
+        loginPage().enterUsername(username);
+        loginPage().enterPassword(password);
+        loginPage().clickLogin(); // Attempt to login
+        if (expectedError.isEmpty()) {
+            String actualUrl = getCurrentUrl(); // Get the current URL after login
+            logger.info("Current URL after login: {}", actualUrl);
+            softAssert.assertEquals(actualUrl, url("inventory.html"), "User was not redirected to the inventory page: " + scenario);
+        } else {
+            String actualErrorMessage = loginPage().getErrorMessage(); // Capture the error message
+            logger.info("Actual error message: {}", actualErrorMessage);
+            softAssert.assertEquals(actualErrorMessage, expectedError, "Error message mismatch: " + scenario);
+        }
+        softAssert.assertAll();
+    }
+}
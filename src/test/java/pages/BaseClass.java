@@ -1,90 +1,113 @@
 package pages;
 
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.WebDriverWait;
-import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
 import org.testng.annotations.*;
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
-import java.time.Duration;
-import utils.DriverFactory;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.function.Supplier;
+import utils.DriverSession;
+import utils.ElementCondition;
+import utils.LocalAppServer;
+import utils.ReplayProxy;
+import utils.LocatorCache;
 import utils.LogDirectoryInitializer;
+import utils.TestConfig;
+import utils.TimeoutPolicy;
+import utils.TimeoutPolicy.Operation;
 
 public abstract class BaseClass {
 
-    // WebDriver and WebDriverWait for managing browser interactions and explicit waits
-    protected static WebDriver driver;
-    protected static WebDriverWait wait;
-    protected static String baseUrl;
-    protected static Logger logger;
+    // Session injected into page objects; test classes resolve the session of the current thread instead
+    private final DriverSession session;
+    // Elements resolved by this page object, reused while they stay attached to the page
+    private final LocatorCache locatorCache;
+    // Browser and base URL of the <test> block this instance belongs to
+    private String browser;
+    private String baseUrl;
 
-    // Constructor for the base class
+    // Constructor for test classes, which use the session bound to the current thread
     public BaseClass() {
+        this(null);
+    }
+
+    /**
+     * Constructor for page objects.
+     *
+     * @param session The browser session the page object operates on.
+     */
+    protected BaseClass(DriverSession session) {
+        this.session = session;
+        this.locatorCache = session != null && TestConfig.getBoolean("locator.cache", true)
+                ? new LocatorCache(getClass().getSimpleName()) : null;
     }
 
     /**
      * Sets up the test environment before the class is executed.
-     * Initializes WebDriver, logger, and opens the base URL.
+     * Stores the browser and base URL used to open a session for each test method. In app.mode=local
+     * the base URL of testng.xml is replaced by the in-process stand-in of the application; with the replay
+     * proxy on, an https:// base URL is rewritten to http:// so the proxy can record it.
      */
     @Parameters({"browser", "baseUrl"})
     @BeforeClass
     public void setUpClass(String browser, String baseUrl) {
         LogDirectoryInitializer.initializeLogDirectories(); // Initialize log directories
-        initializeLogger(browser); // Initialize logger for the specified browser
-        System.setProperty("log4j2.debug", "true"); // Enable Log4j2 debugging
         System.out.println("Current working directory: " + System.getProperty("user.dir"));
-        logger.info("Setting up WebDriver for browser: {}", browser);
-
-        // Initialize WebDriver for the specified browser
-        driver = DriverFactory.getDriver(browser);
-        BaseClass.baseUrl = baseUrl;
+        this.browser = browser;
+        this.baseUrl = ReplayProxy.resolveBaseUrl(LocalAppServer.resolveBaseUrl(baseUrl));
+    }
 
-        // Configure browser settings
-        driver.manage().window().maximize();
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
-        wait = new WebDriverWait(driver, Duration.ofSeconds(30));
+    /**
+     * Returns the browser session this object operates on.
+     *
+     * @return The injected session, or the session bound to the current thread.
+     */
+    protected DriverSession session() {
+        return session != null ? session : DriverSession.current();
+    }
 
-        // Navigate to the base URL and wait for the page to load
-        driver.get(BaseClass.baseUrl);
-        logger.info("Navigated to base URL: {}", BaseClass.baseUrl);
+    /**
+     * Resolves a page of the application against the base URL of the current session, so tests and
+     * page objects do not depend on where the application is served from.
+     *
+     * @param path The page path relative to the base URL, e.g. "inventory.html".
+     * @return The absolute URL of the page.
+     */
+    protected String url(String path) {
+        String baseUrl = session().getBaseUrl();
+        return (baseUrl.endsWith("/") ? baseUrl : baseUrl + "/") + path;
+    }
 
-        waitForPageToLoad();
+    /**
+     * Returns the WebDriver of the current session.
+     *
+     * @return The WebDriver instance.
+     */
+    protected WebDriver driver() {
+        return session().getDriver();
     }
 
     /**
-     * Initializes the logger based on the specified browser.
+     * Returns the browser-specific logger of the current session.
      *
-     * @param browser The name of the browser for which the logger is initialized.
+     * @return The logger instance.
      */
-    private void initializeLogger(String browser) {
-        switch (browser.toLowerCase()) {
-            case "chrome":
-                logger = LoggerFactory.getLogger("ChromeLogger");
-                break;
-            case "firefox":
-                logger = LoggerFactory.getLogger("FirefoxLogger");
-                break;
-            case "edge":
-                logger = LoggerFactory.getLogger("EdgeLogger");
-                break;
-            default:
-                logger = LoggerFactory.getLogger(BaseClass.class);
-                break;
-        }
+    protected Logger logger() {
+        return session().getLogger();
     }
 
     /**
      * Waits until the page is fully loaded by checking the document's ready state.
      */
     private void waitForPageToLoad() {
-        wait.until(webDriver -> ((JavascriptExecutor) webDriver)
-                .executeScript("return document.readyState").equals("complete"));
-        logger.info("Page fully loaded");
+        session().getStateEngine().waitForDocumentReady(TimeoutPolicy.get(Operation.PAGE_READY));
+        logger().info("Page fully loaded");
     }
 
     /**
@@ -94,7 +117,40 @@ public abstract class BaseClass {
      * @return The visible web element.
      */
     protected WebElement waitForElementVisible(By locator) {
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        return session().getStateEngine().waitFor(TimeoutPolicy.get(Operation.ELEMENT), locatorCache, ElementCondition.visible(locator));
+    }
+
+    /**
+     * Waits until every condition holds. With the batched wait strategy all of them are evaluated
+     * in a single browser round trip per poll.
+     *
+     * @param conditions The element conditions to wait for.
+     * @return The matched web elements, in the order of the conditions.
+     */
+    protected List<WebElement> waitForAll(ElementCondition... conditions) {
+        return session().getStateEngine().waitForAll(TimeoutPolicy.get(Operation.ELEMENT), locatorCache, conditions);
+    }
+
+    /**
+     * Runs an action on a cached element and, if the element went stale in between,
+     * drops it from the locator cache and runs the action once more on a freshly resolved element.
+     *
+     * @param locator The By locator the action operates on.
+     * @param action  The action to run.
+     * @param <T>     The result type of the action.
+     * @return The result of the action.
+     */
+    private <T> T retryIfStale(By locator, Supplier<T> action) {
+        try {
+            return action.get();
+        } catch (StaleElementReferenceException e) {
+            if (locatorCache == null) {
+                throw e;
+            }
+            locatorCache.invalidate(locator);
+            logger().info("Cached element went stale, resolving again: {}", locator);
+            return action.get();
+        }
     }
 
     /**
@@ -103,8 +159,21 @@ public abstract class BaseClass {
      * @param locator The By locator of the web element to be clicked.
      */
     protected void click(By locator) {
-        waitForElementClickable(locator).click();
-        logger.info("Clicked element: {}", locator);
+        retryIfStale(locator, () -> {
+            click(waitForElementClickable(locator), locator);
+            return null;
+        });
+    }
+
+    /**
+     * Clicks on a web element that has already been resolved.
+     *
+     * @param element The web element to be clicked.
+     * @param locator The By locator the element was resolved from, used for logging.
+     */
+    protected void click(WebElement element, By locator) {
+        element.click();
+        logger().info("Clicked element: {}", locator);
     }
 
     /**
@@ -114,10 +183,23 @@ public abstract class BaseClass {
      * @param text    The text to send to the web element.
      */
     protected void sendKeys(By locator, String text) {
-        WebElement element = waitForElementVisible(locator);
+        retryIfStale(locator, () -> {
+            sendKeys(waitForElementVisible(locator), locator, text);
+            return null;
+        });
+    }
+
+    /**
+     * Sends text to a web element that has already been resolved, after clearing any existing text.
+     *
+     * @param element The web element.
+     * @param locator The By locator the element was resolved from, used for logging.
+     * @param text    The text to send to the web element.
+     */
+    protected void sendKeys(WebElement element, By locator, String text) {
         element.clear();
         element.sendKeys(text);
-        logger.info("Entered text '{}' into element: {}", text, locator);
+        logger().info("Entered {} character(s) into element: {}", text.length(), locator); // Never log the text itself, it may be a password
     }
 
     /**
@@ -127,26 +209,23 @@ public abstract class BaseClass {
      * @return The text of the web element.
      */
     protected String getText(By locator) {
-        String text = waitForElementVisible(locator).getText();
-        logger.info("Retrieved text '{}' from element: {}", text, locator);
+        String text = retryIfStale(locator, () -> waitForElementVisible(locator).getText());
+        logger().info("Retrieved text '{}' from element: {}", text, locator);
         return text;
     }
 
     /**
      * Checks if a web element is present on the page.
+     * Returns immediately: implicit waits are disabled by the TimeoutPolicy, so a missing element
+     * costs a single round trip. Use the wait methods to wait for an element to appear.
      *
      * @param locator The By locator of the web element.
      * @return True if the element is present, otherwise false.
      */
     protected boolean isElementPresent(By locator) {
-        try {
-            driver.findElement(locator);
-            logger.info("Element is present: {}", locator);
-            return true;
-        } catch (org.openqa.selenium.NoSuchElementException e) {
-            logger.info("Element is not present: {}", locator);
-            return false;
-        }
+        boolean present = !driver().findElements(locator).isEmpty();
+        logger().info(present ? "Element is present: {}" : "Element is not present: {}", locator);
+        return present;
     }
 
     /**
@@ -158,7 +237,7 @@ public abstract class BaseClass {
     protected void selectByVisibleText(By locator, String text) {
         Select select = new Select(waitForElementVisible(locator));
         select.selectByVisibleText(text);
-        logger.info("Selected '{}' from dropdown: {}", text, locator);
+        logger().info("Selected '{}' from dropdown: {}", text, locator);
     }
 
     /**
@@ -167,8 +246,8 @@ public abstract class BaseClass {
      * @return The current URL.
      */
     protected String getCurrentUrl() {
-        String url = driver.getCurrentUrl();
-        logger.info("Current URL: {}", url);
+        String url = driver().getCurrentUrl();
+        logger().info("Current URL: {}", url);
         return url;
     }
 
@@ -179,8 +258,7 @@ public abstract class BaseClass {
      * @return The clickable web element.
      */
     public WebElement waitForElementClickable(By locator) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-        return wait.until(ExpectedConditions.elementToBeClickable(locator));
+        return session().getStateEngine().waitFor(TimeoutPolicy.get(Operation.ELEMENT), locatorCache, ElementCondition.clickable(locator));
     }
 
     /**
@@ -190,8 +268,7 @@ public abstract class BaseClass {
      * @return The visible web element.
      */
     public WebElement waitForElementVisibility(By locator) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(10));
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        return session().getStateEngine().waitFor(TimeoutPolicy.get(Operation.ELEMENT), locatorCache, ElementCondition.visible(locator));
     }
 
     /**
@@ -205,32 +282,45 @@ public abstract class BaseClass {
         return element.getText();
     }
 
-    /**
-     * Closes the WebDriver after all tests have been executed.
-     */
-    @AfterClass
-    public void tearDownClass() {
-        if (driver != null) {
-            try {
-                driver.quit();
-                logger.info("WebDriver quit successfully");
-            } catch (Exception e) {
-                logger.error("Error occurred while closing the browser: {}", e.getMessage());
-            }
-        }
-    }
-
     /**
      * Sets up the test environment before each test method.
-     * Navigates to the base URL to ensure a fresh start for each test.
+     * Opens a session for the current thread and navigates to the base URL to ensure a fresh start for each test.
+     * Puts the browser and a per-thread test id into the MDC; log4j2-async.xml routes each test thread to its own file by them.
+     *
+     * @param method The test method about to run.
      */
     @BeforeMethod
-    public void setUpMethod() {
+    public void setUpMethod(Method method) {
+        MDC.put("browser", browser);
+        MDC.put("testId", getClass().getSimpleName() + "." + method.getName() + "_t" + Thread.currentThread().getId());
+        DriverSession session = DriverSession.open(browser, baseUrl);
+        session.getLogger().info("Setting up WebDriver for browser: {}", browser);
+
+        // Window size and timeouts are set when the driver is created, see LaunchProfile and TimeoutPolicy
+        WebDriver driver = session.getDriver();
+
+        // Navigate to the base URL and wait for the page to load
         driver.get(baseUrl);
-        logger.info("Navigated to base URL before test method: {}", baseUrl);
+        session.getLogger().info("Navigated to base URL before test method: {}", baseUrl);
+        waitForPageToLoad();
     }
 
-    // Placeholder for future setup implementation
-    public void setUp(String browser, String baseUrl) {
+    /**
+     * Returns the session of the current thread to the pool after each test method.
+     * The pool resets the browser instead of quitting it so the next test can reuse it.
+     */
+    @AfterMethod(alwaysRun = true)
+    public void tearDownMethod() {
+        DriverSession session = DriverSession.currentOrNull();
+        if (session != null) {
+            try {
+                DriverSession.closeCurrent();
+                session.getLogger().info("WebDriver returned to the pool");
+            } catch (Exception e) {
+                session.getLogger().error("Error occurred while releasing the browser: {}", e.getMessage());
+            }
+        }
+        MDC.remove("browser");
+        MDC.remove("testId");
     }
 }
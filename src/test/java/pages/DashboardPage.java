@@ -1,9 +1,9 @@
 package pages;
 
 import org.openqa.selenium.By;
-import org.openqa.selenium.WebDriver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.DriverSession;
 
 public class DashboardPage extends BaseClass {
 
@@ -22,9 +22,13 @@ public class DashboardPage extends BaseClass {
     private final By lowPriceItem = By.xpath("//div[normalize-space()='Sauce Labs Fleece Jacket']");
     private final By productDetails = By.xpath("//div[@class='inventory_details_desc large_size']");
 
-    // Constructor for the DashboardPage class
-    public DashboardPage(WebDriver driver) {
-        super(); // Call the constructor of the parent class (BaseClass)
+    /**
+     * Constructor for the DashboardPage class.
+     *
+     * @param session The browser session the page operates on.
+     */
+    public DashboardPage(DriverSession session) {
+        super(session); // Call the constructor of the parent class (BaseClass)
     }
 
     /**
@@ -98,8 +102,8 @@ public class DashboardPage extends BaseClass {
      * @return True if on the Dashboard page, otherwise false.
      */
     public boolean isOnDashboardPage() {
-        String currentUrl = driver.getCurrentUrl();
-        boolean isOnPage = currentUrl.contains("https://www.saucedemo.com/inventory.html");
+        String currentUrl = driver().getCurrentUrl();
+        boolean isOnPage = currentUrl.contains(url("inventory.html"));
         logger.info("Checking if on login page. Result: {}", isOnPage);
         return isOnPage;
     }
@@ -110,8 +114,8 @@ public class DashboardPage extends BaseClass {
      * @return True if on the Checkout page, otherwise false.
      */
     public boolean isOnCheckOutPage() {
-        String currentUrl = driver.getCurrentUrl();
-        boolean isOnPage = currentUrl.contains("https://www.saucedemo.com/checkout-step-one.html");
+        String currentUrl = driver().getCurrentUrl();
+        boolean isOnPage = currentUrl.contains(url("checkout-step-one.html"));
         logger.info("Checking if on login page. Result: {}", isOnPage);
         return isOnPage;
     }
@@ -1,10 +1,16 @@
 package pages;
 
 import org.openqa.selenium.By;
-import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import utils.DriverSession;
+
+import java.util.List;
+
+import static utils.ElementCondition.clickable;
+import static utils.ElementCondition.visible;
 
 public class LoginPage extends BaseClass {
 
@@ -18,17 +24,17 @@ public class LoginPage extends BaseClass {
     private final By emptyUserNameErrorMessage = By.xpath("//*[contains(text(), 'Epic sadface: Username is required')]");
     private final By emptyPasswordErrorMessage = By.xpath("//*[contains(text(), 'Epic sadface: Password is required')]");
     private final By invalidUserNameAndPasswordErrorMessage = By.xpath("//*[contains(text(),'Epic sadface: Username and password do not match any user in this service')]");
+    private final By errorMessage = By.cssSelector("[data-test='error']:not([hidden])");
 
     /**
      * Constructor for the LoginPage class.
-     * Initializes the WebDriver and the elements on the page.
+     * Binds the page to a browser session and initializes the elements on the page.
      *
-     * @param driver The WebDriver instance used to control the browser.
+     * @param session The browser session the page operates on.
      */
-    public LoginPage(WebDriver driver) {
-        super(); // Call the constructor of the parent class (BaseClass)
-        BaseClass.driver = driver; // Set the driver in the BaseClass
-        PageFactory.initElements(driver, this); // Initialize web elements using PageFactory
+    public LoginPage(DriverSession session) {
+        super(session); // Call the constructor of the parent class (BaseClass)
+        PageFactory.initElements(session.getDriver(), this); // Initialize web elements using PageFactory
         logger.info("LoginPage initialized");
     }
 
@@ -84,6 +90,15 @@ public class LoginPage extends BaseClass {
         return getText(invalidUserNameAndPasswordErrorMessage); // Get the text of the error message for invalid credentials
     }
 
+    /**
+     * Retrieves the error message displayed after a failed login, whatever the error.
+     *
+     * @return The error message text.
+     */
+    public String getErrorMessage() {
+        return getText(errorMessage); // Get the text of the visible error message
+    }
+
     /**
      * Performs the login action using the provided username and password.
      *
@@ -91,9 +106,11 @@ public class LoginPage extends BaseClass {
      * @param password The password to be entered.
      */
     public void login(String username, String password) {
-        enterUsername(username); // Enter the username
-        enterPassword(password); // Enter the password
-        clickLogin(); // Click the login button
+        // Resolve the whole form in one round trip instead of one wait per field
+        List<WebElement> form = waitForAll(visible(usernameField), visible(passwordField), clickable(loginButton));
+        sendKeys(form.get(0), usernameField, username); // Enter the username
+        sendKeys(form.get(1), passwordField, password); // Enter the password
+        click(form.get(2), loginButton); // Click the login button
         logger.info("Logged in with username: {}", username);
     }
 }
@@ -0,0 +1,123 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Writes test artifacts (screenshots) to disk on a bounded background executor,
+ * so a failing test does not pay for disk I/O before the next test starts.
+ * When the queue is full the submitting thread writes the artifact itself, which bounds memory use.
+ */
+public class ArtifactPipeline {
+
+    // Logger for logging messages related to artifact writing
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactPipeline.class);
+    // Directory of the Extent reports (report.dir); artifacts are stored below it so the report can link them relatively
+    private static final Path REPORT_DIR = Path.of(System.getProperty("user.dir")).resolve(TestConfig.get("report.dir", "test-output"));
+    // Sub-directory for screenshots, relative to the report directory
+    private static final String SCREENSHOT_DIR = "screenshots";
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+    // Writes that have been submitted and may not have completed yet
+    private static final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Returns the directory of the reports, which artifact paths are relative to.
+     *
+     * @return The absolute report directory (report.dir, test-output by default).
+     */
+    public static Path reportDirectory() {
+        return REPORT_DIR;
+    }
+
+    /**
+     * Queues a PNG screenshot to be written in the background.
+     *
+     * @param name The base name of the file (e.g. the test method name).
+     * @param png  The screenshot bytes.
+     * @return The path of the screenshot relative to the report directory, usable in the Extent report.
+     */
+    public static String submitScreenshot(String name, byte[] png) {
+        String relativePath = SCREENSHOT_DIR + "/" + name.replaceAll("[^A-Za-z0-9._-]", "_") + "_" + System.nanoTime() + ".png";
+        Path target = REPORT_DIR.resolve(relativePath);
+        pending.add(executor.submit(() -> write(target, png)));
+        return relativePath;
+    }
+
+    /**
+     * Blocks until every queued artifact has been written, or until the timeout expires.
+     *
+     * @param timeout The maximum time to wait.
+     */
+    public static void drain(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Future<?> future;
+        while ((future = pending.poll()) != null) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                logger.warn("Artifact queue not drained within {} ms, {} write(s) still pending",
+                        timeout.toMillis(), pending.size() + 1);
+                return;
+            } catch (ExecutionException e) {
+                logger.warn("Failed to write artifact: {}", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes bytes to a file through a FileChannel.
+     *
+     * @param target The file to write.
+     * @param bytes  The content.
+     * @throws IOException If the file cannot be written.
+     */
+    private static Void write(Path target, byte[] bytes) throws IOException {
+        Files.createDirectories(target.getParent());
+        try (FileChannel channel = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the bounded executor using the artifact settings from test-config.properties.
+     *
+     * @return The executor.
+     */
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = Math.max(1, TestConfig.getInt("artifacts.threads", 2));
+        int queueSize = Math.max(1, TestConfig.getInt("artifacts.queueSize", 64));
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "artifact-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy()); // Back-pressure instead of unbounded memory
+    }
+}
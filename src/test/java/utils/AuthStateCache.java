@@ -0,0 +1,164 @@
+package utils;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caches the authenticated browser state (cookies and localStorage) per browser, user and base URL.
+ * The first login for a key goes through the UI; later sessions get the captured state injected
+ * and skip the login form entirely. If the injected state does not produce a logged-in page,
+ * the cache entry is dropped and the UI login is performed again.
+ */
+public class AuthStateCache {
+
+    // Logger for logging messages related to the auth state cache
+    private static final Logger logger = LoggerFactory.getLogger(AuthStateCache.class);
+    // Captured states keyed by browser, user and base URL
+    private static final Map<String, AuthState> states = new ConcurrentHashMap<>();
+    // Script that copies every localStorage entry into a plain object
+    private static final String READ_STORAGE_SCRIPT =
+            "var state = {};"
+                    + "for (var i = 0; i < window.localStorage.length; i++) {"
+                    + "  var key = window.localStorage.key(i); state[key] = window.localStorage.getItem(key);"
+                    + "}"
+                    + "return state;";
+    // Script that writes the entries of arguments[0] into localStorage
+    private static final String WRITE_STORAGE_SCRIPT =
+            "var state = arguments[0];"
+                    + "for (var key in state) { window.localStorage.setItem(key, state[key]); }";
+
+    // Cache metrics
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Logs the session in as the specified user, restoring a cached state when possible.
+     * The session must already be on a page of the application's origin (e.g. the base URL).
+     *
+     * @param session    The browser session to log in.
+     * @param username   The user to log in as.
+     * @param uiLogin    Performs the login through the UI.
+     * @param isLoggedIn Checks whether the browser shows a logged-in page.
+     */
+    public static void login(DriverSession session, String username, Runnable uiLogin, BooleanSupplier isLoggedIn) {
+        if (!TestConfig.getBoolean("auth.cache", true)) {
+            uiLogin.run();
+            return;
+        }
+
+        String key = session.getBrowser() + "|" + username + "|" + session.getBaseUrl();
+        AuthState state = states.get(key);
+        if (state != null) {
+            if (restore(session.getDriver(), state) && isLoggedIn.getAsBoolean()) {
+                hits.incrementAndGet();
+                session.getLogger().info("Restored cached login state for user: {}", username);
+                return;
+            }
+            // The cached state is no longer accepted, drop it and log in through the UI
+            fallbacks.incrementAndGet();
+            states.remove(key, state);
+            logger.warn("Cached login state for {} was rejected, falling back to UI login", key);
+            clear(session.getDriver());
+            session.getDriver().get(session.getBaseUrl());
+        } else {
+            misses.incrementAndGet();
+        }
+
+        uiLogin.run();
+        if (isLoggedIn.getAsBoolean()) {
+            states.put(key, capture(session.getDriver()));
+            session.getLogger().info("Captured login state for user: {}", username);
+        }
+    }
+
+    /**
+     * Captures the cookies, localStorage and landing URL of a logged-in browser.
+     *
+     * @param driver The logged-in driver.
+     * @return The captured state.
+     */
+    @SuppressWarnings("unchecked")
+    private static AuthState capture(WebDriver driver) {
+        Set<Cookie> cookies = driver.manage().getCookies();
+        Map<String, Object> storage = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(READ_STORAGE_SCRIPT);
+        return new AuthState(cookies, storage == null ? new HashMap<>() : storage, driver.getCurrentUrl());
+    }
+
+    /**
+     * Injects a captured state into the browser and opens the landing page.
+     *
+     * @param driver The driver, positioned on the application's origin.
+     * @param state  The state to inject.
+     * @return True if the state was injected, false if it has expired or could not be applied.
+     */
+    private static boolean restore(WebDriver driver, AuthState state) {
+        Date now = new Date();
+        for (Cookie cookie : state.cookies) {
+            if (cookie.getExpiry() != null && cookie.getExpiry().before(now)) {
+                return false; // An expired session cookie cannot produce a logged-in page
+            }
+        }
+        try {
+            for (Cookie cookie : state.cookies) {
+                driver.manage().addCookie(cookie);
+            }
+            ((JavascriptExecutor) driver).executeScript(WRITE_STORAGE_SCRIPT, state.localStorage);
+            driver.get(state.landingUrl);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to inject cached login state: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Removes any partially injected state from the browser.
+     *
+     * @param driver The driver to clean.
+     */
+    private static void clear(WebDriver driver) {
+        try {
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript("window.localStorage.clear();");
+        } catch (Exception e) {
+            logger.warn("Failed to clear rejected login state: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a one-line summary of the cache metrics.
+     *
+     * @return The metrics summary.
+     */
+    public static String metricsSummary() {
+        return String.format("Auth state cache: hits=%d, misses=%d, fallbacks=%d",
+                hits.get(), misses.get(), fallbacks.get());
+    }
+
+    /**
+     * Cookies, localStorage and landing URL captured after a successful UI login.
+     */
+    private static class AuthState {
+        private final Set<Cookie> cookies;
+        private final Map<String, Object> localStorage;
+        private final String landingUrl;
+
+        private AuthState(Set<Cookie> cookies, Map<String, Object> localStorage, String landingUrl) {
+            this.cookies = cookies;
+            this.localStorage = localStorage;
+            this.landingUrl = landingUrl;
+        }
+    }
+}
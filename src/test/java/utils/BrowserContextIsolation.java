@@ -0,0 +1,169 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.Connection;
+import org.openqa.selenium.devtools.SeleniumCdpConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolates tests in browser contexts instead of browser processes (isolation=context). Every lease of a pooled
+ * Chromium session (Chrome, Edge, local or on the Grid) gets a fresh browser context, created with the DevTools command
+ * Target.createBrowserContext: its own cookies, storage and cache, like a new incognito profile, in milliseconds
+ * instead of the seconds a browser launch takes. The driver is switched to a window of that context, so tests and
+ * page objects use it as any other WebDriver. When the lease is returned, the context is disposed with everything
+ * in it and the driver switches back to the window of the default context, which tests never use.
+ * <p>
+ * Context commands are browser-level, so they go over a separate DevTools connection to the browser target.
+ * Other browsers, and sessions whose DevTools connection cannot be opened, fall back to resetting the session.
+ */
+public class BrowserContextIsolation {
+
+    // Logger for logging messages related to context isolation
+    private static final Logger logger = LoggerFactory.getLogger(BrowserContextIsolation.class);
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(10);
+
+    // Browser-level connection and open context of every isolated session, keyed by the undecorated driver
+    private static final Map<WebDriver, Isolation> isolations = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Metrics
+    private static final LatencyHistogram createTimes = new LatencyHistogram();
+    private static final LatencyHistogram disposeTimes = new LatencyHistogram();
+    private static final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Returns whether tests are isolated in browser contexts.
+     *
+     * @return True if isolation is context.
+     */
+    public static boolean isEnabled() {
+        return "context".equalsIgnoreCase(TestConfig.get("isolation", "reset").trim());
+    }
+
+    /**
+     * Opens a fresh browser context and switches the driver to its window.
+     *
+     * @param driver The leased driver, possibly decorated.
+     * @return True if the driver now works in a fresh context; false if the session has to be reset instead.
+     */
+    public static boolean open(WebDriver driver) {
+        WebDriver undecorated = unwrap(driver);
+        if (!NetworkPolicy.isChromium(undecorated)) {
+            fallbacks.incrementAndGet();
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            Isolation isolation = isolations.get(undecorated);
+            if (isolation == null) {
+                Connection connection = SeleniumCdpConnection.create(undecorated)
+                        .orElseThrow(() -> new IllegalStateException("the session reports no DevTools endpoint"));
+                isolation = new Isolation(connection, driver.getWindowHandle());
+                isolations.put(undecorated, isolation);
+            }
+            String contextId = String.valueOf(isolation.send("Target.createBrowserContext", Map.of("disposeOnDetach", false))
+                    .get("browserContextId"));
+            isolation.contextId = contextId;
+            String targetId = String.valueOf(isolation.send("Target.createTarget",
+                    Map.of("url", "about:blank", "browserContextId", contextId)).get("targetId"));
+            String window = driver.getWindowHandles().stream()
+                    .filter(handle -> handle.contains(targetId)) // ChromeDriver window handles are DevTools target ids
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no window handle for target " + targetId));
+            driver.switchTo().window(window);
+            NetworkPolicy.attach(driver, window); // The policy is set per page, so the new page needs it too
+            createTimes.recordNanos(System.nanoTime() - start);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to open a browser context, resetting the session instead: {}", e.getMessage());
+            fallbacks.incrementAndGet();
+            close(driver);
+            return false;
+        }
+    }
+
+    /**
+     * Disposes the context opened by {@link #open(WebDriver)}, with its windows, cookies, storage and cache,
+     * and switches the driver back to the window of the default context.
+     *
+     * @param driver The driver, possibly decorated.
+     * @return True if the session is back in its default context and can be leased again.
+     */
+    public static boolean close(WebDriver driver) {
+        Isolation isolation = isolations.get(unwrap(driver));
+        if (isolation == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            if (isolation.contextId != null) {
+                isolation.send("Target.disposeBrowserContext", Map.of("browserContextId", isolation.contextId));
+                isolation.contextId = null;
+            }
+            driver.switchTo().window(isolation.homeWindow);
+            disposeTimes.recordNanos(System.nanoTime() - start);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to dispose the browser context: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Closes the browser-level connection of a session that is being quit.
+     *
+     * @param driver The driver, possibly decorated.
+     */
+    public static void forget(WebDriver driver) {
+        Isolation isolation = isolations.remove(unwrap(driver));
+        if (isolation != null) {
+            isolation.connection.close();
+        }
+    }
+
+    /**
+     * Builds a summary of the contexts opened and the time it took to create and dispose them.
+     *
+     * @return The summary line.
+     */
+    public static String metricsSummary() {
+        return String.format("Context isolation (%s): contexts=%d, create p50=%.1fms, max=%.1fms, dispose p50=%.1fms, fallbacks to reset=%d",
+                isEnabled() ? "on" : "off", createTimes.getCount(), createTimes.getValueAtPercentile(50) / 1_000.0,
+                createTimes.getMaxMicros() / 1_000.0, disposeTimes.getValueAtPercentile(50) / 1_000.0, fallbacks.get());
+    }
+
+    private static WebDriver unwrap(WebDriver driver) {
+        while (driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        return driver;
+    }
+
+    /**
+     * The browser-level connection of a session, the window of its default context, and the context it is leased in.
+     */
+    private static class Isolation {
+        private final Connection connection;
+        private final String homeWindow;
+        private String contextId;
+
+        private Isolation(Connection connection, String homeWindow) {
+            this.connection = connection;
+            this.homeWindow = homeWindow;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, Object> send(String method, Map<String, Object> params) {
+            // No session id: the command goes to the browser target
+            return connection.sendAndWait(null, new Command<Map<String, Object>>(method, params, Map.class), COMMAND_TIMEOUT);
+        }
+    }
+}
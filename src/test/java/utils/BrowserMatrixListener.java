@@ -0,0 +1,179 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.IAlterSuiteListener;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites the suite into a browser x class x method matrix when run with -Dmatrix=true.
+ * Each browser gets one &lt;test&gt; whose methods run in parallel up to a per-browser cap,
+ * and the browser tests themselves run concurrently, so the matrix takes as long as the slowest browser
+ * instead of the sum of all browsers. All cells belong to the same suite and end up in a single report.
+ */
+public class BrowserMatrixListener implements IAlterSuiteListener {
+
+    // Logger for logging the matrix plan
+    private static final Logger logger = LoggerFactory.getLogger(BrowserMatrixListener.class);
+
+    /**
+     * Called by TestNG before the suites are run.
+     *
+     * @param suites The suites parsed from testng.xml.
+     */
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        if (!TestConfig.getBoolean("matrix", false)) {
+            return;
+        }
+        for (XmlSuite suite : suites) {
+            alterSuite(suite);
+        }
+    }
+
+    /**
+     * Replaces the &lt;test&gt; blocks of a suite with one parallel test per browser.
+     *
+     * @param suite The suite to rewrite.
+     */
+    private void alterSuite(XmlSuite suite) {
+        // Collect the browsers (with their base URLs) and, per browser, the methods its <test> blocks select per class
+        Map<String, String> browsers = new LinkedHashMap<>();
+        Map<String, Map<String, Set<String>>> methodsByBrowser = new LinkedHashMap<>();
+        Set<String> classNames = new LinkedHashSet<>();
+        for (XmlTest test : suite.getTests()) {
+            String browser = test.getParameter("browser");
+            if (browser == null) {
+                continue;
+            }
+            browsers.putIfAbsent(browser, test.getParameter("baseUrl"));
+            Map<String, Set<String>> classes = methodsByBrowser.computeIfAbsent(browser, key -> new LinkedHashMap<>());
+            for (XmlClass xmlClass : test.getXmlClasses()) {
+                classNames.add(xmlClass.getName());
+                classes.computeIfAbsent(xmlClass.getName(), key -> new LinkedHashSet<>()).addAll(selectedMethods(xmlClass));
+            }
+        }
+        if (browsers.isEmpty() || classNames.isEmpty()) {
+            logger.warn("Suite '{}' declares no browsers or classes, matrix mode skipped", suite.getName());
+            return;
+        }
+
+        List<XmlTest> originalTests = new ArrayList<>(suite.getTests());
+        suite.getTests().clear();
+
+        int workers = 0;
+        int cells = 0;
+        for (Map.Entry<String, String> browser : browsers.entrySet()) {
+            int cap = browserCap(browser.getKey());
+            XmlTest matrixTest = new XmlTest(suite);
+            matrixTest.setName("Matrix - " + browser.getKey());
+            matrixTest.addParameter("browser", browser.getKey());
+            if (browser.getValue() != null) {
+                matrixTest.addParameter("baseUrl", browser.getValue());
+            }
+            matrixTest.setParallel(XmlSuite.ParallelMode.METHODS);
+            matrixTest.setThreadCount(cap);
+
+            List<XmlClass> xmlClasses = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> testClass : methodsByBrowser.get(browser.getKey()).entrySet()) {
+                if (testClass.getValue().isEmpty()) {
+                    continue;
+                }
+                XmlClass xmlClass = new XmlClass(testClass.getKey(), false);
+                List<XmlInclude> includes = new ArrayList<>();
+                for (String methodName : testClass.getValue()) {
+                    includes.add(new XmlInclude(methodName));
+                }
+                xmlClass.setIncludedMethods(includes);
+                xmlClasses.add(xmlClass);
+                cells += includes.size();
+            }
+            matrixTest.setXmlClasses(xmlClasses);
+            workers += cap;
+            logger.info("Matrix cell group '{}': {} class(es), {} thread(s)", matrixTest.getName(), xmlClasses.size(), cap);
+        }
+
+        // Every browser test runs at the same time; each one is capped by its own thread count
+        suite.setParallel(XmlSuite.ParallelMode.TESTS);
+        suite.setThreadCount(browsers.size());
+        logger.info("Matrix for suite '{}': {} browser(s) x {} class(es) = {} cell(s) on {} worker thread(s), replacing {} <test> block(s)",
+                suite.getName(), browsers.size(), classNames.size(), cells, workers, originalTests.size());
+    }
+
+    /**
+     * Returns the maximum number of concurrent methods for a browser.
+     *
+     * @param browser The name of the browser.
+     * @return The configured cap, at least 1.
+     */
+    private int browserCap(String browser) {
+        return Math.max(1, TestConfig.getInt("matrix." + browser + ".threads", TestConfig.getInt("matrix.threads", 2)));
+    }
+
+    /**
+     * Lists the test methods a &lt;class&gt; element selects: the test methods of the class, narrowed by its
+     * &lt;include&gt; and &lt;exclude&gt; elements.
+     *
+     * @param xmlClass The class element of a &lt;test&gt; block.
+     * @return The names of the selected test methods.
+     * @throws IllegalArgumentException If the class does not exist.
+     */
+    private List<String> selectedMethods(XmlClass xmlClass) {
+        Set<String> included = new LinkedHashSet<>();
+        xmlClass.getIncludedMethods().forEach(include -> included.add(include.getName()));
+        List<String> methods = new ArrayList<>();
+        try {
+            for (Method method : testMethods(Class.forName(xmlClass.getName()))) {
+                if ((included.isEmpty() || included.contains(method.getName()))
+                        && !xmlClass.getExcludedMethods().contains(method.getName())) {
+                    methods.add(method.getName());
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Class " + xmlClass.getName() + " declared in testng.xml not found", e);
+        }
+        return methods;
+    }
+
+    /**
+     * Lists the enabled test methods of a class, including inherited ones: public methods annotated with @Test,
+     * and the other public methods of classes annotated with @Test, except configuration and data provider methods.
+     *
+     * @param testClass The test class.
+     * @return The test methods.
+     */
+    static List<Method> testMethods(Class<?> testClass) {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : testClass.getMethods()) {
+            if (method.getDeclaringClass() == Object.class || method.isSynthetic() || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            Test test = method.getAnnotation(Test.class);
+            if (test == null) {
+                if (Arrays.stream(method.getAnnotations())
+                        .anyMatch(annotation -> annotation.annotationType().getPackageName().equals(Test.class.getPackageName()))) {
+                    continue; // @BeforeMethod, @DataProvider and the like
+                }
+                test = method.getDeclaringClass().getAnnotation(Test.class);
+            }
+            if (test != null && test.enabled()) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+}
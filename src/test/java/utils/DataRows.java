@@ -0,0 +1,324 @@
+package utils;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of a CSV or YAML data set into a TestNG data provider lazily, one row at a time. Each row becomes
+ * the parameters of one test invocation, in column order. Only a sequential data provider keeps just the current row
+ * in memory: TestNG reads every row of a parallel = true data provider before the first invocation.
+ * <ul>
+ *     <li>CSV (.csv): a header row, then one record per row. Fields may be quoted ("a, b"), with "" for a quote.
+ *     Blank lines and lines starting with # are skipped.</li>
+ *     <li>YAML (.yaml, .yml): a sequence of flat mappings. The keys of the first mapping are the columns; later
+ *     mappings may leave columns out. The file is read as a stream of parser events, not as a document.</li>
+ * </ul>
+ * Values are strings; empty and null values become "". With data.shard=i/N, only every N-th row starting at row i
+ * (0-based) is returned, so N workers can split a data set between them.
+ */
+public class DataRows {
+
+    /**
+     * Opens a data set.
+     *
+     * @param source A file path, or a classpath resource such as "data/login-matrix.csv".
+     * @return The rows of the data set that belong to this shard, read lazily. The file is closed after the last row.
+     * @throws IllegalArgumentException If the data set does not exist or its format is not supported.
+     */
+    public static Iterator<Object[]> open(String source) {
+        String name = source.toLowerCase();
+        Iterator<Object[]> rows;
+        if (name.endsWith(".csv")) {
+            rows = new CsvRows(source, reader(source));
+        } else if (name.endsWith(".yaml") || name.endsWith(".yml")) {
+            rows = new YamlRows(source, reader(source));
+        } else {
+            throw new IllegalArgumentException("Unsupported data set " + source + "; use .csv, .yaml or .yml");
+        }
+        String shard = TestConfig.get("data.shard", "").trim();
+        return shard.isEmpty() ? rows : new ShardRows(rows, shard);
+    }
+
+    private static BufferedReader reader(String source) {
+        try {
+            InputStream input;
+            if (Files.isRegularFile(Path.of(source))) {
+                input = Files.newInputStream(Path.of(source));
+            } else {
+                input = DataRows.class.getClassLoader().getResourceAsStream(source);
+                if (input == null) {
+                    throw new IllegalArgumentException("Data set " + source + " is neither a file nor a classpath resource");
+                }
+            }
+            return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open data set " + source, e);
+        }
+    }
+
+    private static void close(BufferedReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // Reading has finished; nothing is lost
+        }
+    }
+
+    /**
+     * Base of the readers: reads one row ahead, so hasNext() knows whether another row exists.
+     */
+    private abstract static class LookaheadRows implements Iterator<Object[]> {
+        protected final String source;
+        protected final BufferedReader reader;
+        private Object[] next;
+        private boolean done;
+
+        private LookaheadRows(String source, BufferedReader reader) {
+            this.source = source;
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the next row.
+         *
+         * @return The row, or null at the end of the data set.
+         * @throws IOException If the data set cannot be read.
+         */
+        protected abstract Object[] read() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to read data set " + source, e);
+                }
+                if (next == null) {
+                    done = true;
+                    close(reader);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object[] row = next;
+            next = null;
+            return row;
+        }
+    }
+
+    /**
+     * Rows of a CSV file.
+     */
+    private static class CsvRows extends LookaheadRows {
+        private List<String> header;
+        private int lineNumber;
+
+        private CsvRows(String source, BufferedReader reader) {
+            super(source, reader);
+        }
+
+        @Override
+        protected Object[] read() throws IOException {
+            if (header == null) {
+                header = record();
+                if (header == null) {
+                    return null;
+                }
+            }
+            List<String> fields = record();
+            if (fields == null) {
+                return null;
+            }
+            if (fields.size() != header.size()) {
+                throw new IllegalArgumentException(String.format("%s:%d has %d fields, the header has %d",
+                        source, lineNumber, fields.size(), header.size()));
+            }
+            return fields.toArray();
+        }
+
+        /**
+         * Reads one record, which may span several lines inside a quoted field.
+         *
+         * @return The fields, or null at the end of the file.
+         */
+        private List<String> record() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank() || line.startsWith("#"));
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; ; i++) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    line = reader.readLine(); // A line break inside quotes belongs to the field
+                    lineNumber++;
+                    if (line == null) {
+                        throw new IllegalArgumentException(source + ": unterminated quoted field at the end of the file");
+                    }
+                    field.append('\n');
+                    i = -1;
+                    continue;
+                }
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    /**
+     * Rows of a YAML sequence of mappings, assembled from parser events.
+     */
+    private static class YamlRows extends LookaheadRows {
+        private final Iterator<Event> events;
+        private List<String> columns;
+
+        private YamlRows(String source, BufferedReader reader) {
+            super(source, reader);
+            this.events = new Yaml().parse(reader).iterator();
+        }
+
+        @Override
+        protected Object[] read() {
+            while (events.hasNext()) {
+                Event event = events.next();
+                if (event.is(Event.ID.MappingStart)) {
+                    return mapping(event);
+                }
+                if (event.is(Event.ID.Scalar) || event.is(Event.ID.Alias)) {
+                    throw new IllegalArgumentException(source + ": expected a sequence of mappings at line "
+                            + (event.getStartMark().getLine() + 1));
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Reads the keys and values of one mapping, up to its end.
+         */
+        private Object[] mapping(Event start) {
+            List<String> keys = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            Event event;
+            while (!(event = events.next()).is(Event.ID.MappingEnd)) {
+                Event value = events.next();
+                if (!event.is(Event.ID.Scalar) || !value.is(Event.ID.Scalar)) {
+                    throw new IllegalArgumentException(source + ": rows must be flat mappings of scalars, see line "
+                            + (event.getStartMark().getLine() + 1));
+                }
+                keys.add(((ScalarEvent) event).getValue());
+                values.add(scalar((ScalarEvent) value));
+            }
+            if (columns == null) {
+                columns = keys;
+                return values.toArray();
+            }
+            Object[] row = new Object[columns.size()];
+            Arrays.fill(row, "");
+            for (int i = 0; i < keys.size(); i++) {
+                int column = columns.indexOf(keys.get(i));
+                if (column < 0) {
+                    throw new IllegalArgumentException(String.format("%s: unknown column '%s' at line %d; the columns are %s",
+                            source, keys.get(i), start.getStartMark().getLine() + 1, columns));
+                }
+                row[column] = values.get(i);
+            }
+            return row;
+        }
+
+        private static String scalar(ScalarEvent event) {
+            String value = event.getValue();
+            return event.isPlain() && ("~".equals(value) || "null".equals(value)) ? "" : value;
+        }
+    }
+
+    /**
+     * Every N-th row of another row iterator, for data.shard=i/N.
+     */
+    private static class ShardRows implements Iterator<Object[]> {
+        private final Iterator<Object[]> rows;
+        private final int index;
+        private final int count;
+        private int position;
+
+        private ShardRows(Iterator<Object[]> rows, String shard) {
+            String[] parts = shard.split("/");
+            try {
+                this.index = Integer.parseInt(parts[0].trim());
+                this.count = Integer.parseInt(parts[1].trim());
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("data.shard must look like i/N, e.g. 0/4, not " + shard);
+            }
+            if (count < 1 || index < 0 || index >= count) {
+                throw new IllegalArgumentException("data.shard " + shard + " is out of range; use 0/N up to (N-1)/N");
+            }
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position % count != index && rows.hasNext()) {
+                rows.next();
+                position++;
+            }
+            return position % count == index && rows.hasNext();
+        }
+
+        @Override
+        public Object[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            position++;
+            return rows.next();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Unit tests for {@link DataRows}; they run without a browser.
+ */
+public class DataRowsTest {
+
+    /**
+     * Clears data.shard, which some tests set as a system property.
+     */
+    @AfterMethod(alwaysRun = true)
+    public void clearShard() {
+        System.clearProperty("data.shard");
+    }
+
+    /**
+     * Quoted fields may hold commas, doubled quotes and line breaks; comments and blank lines are skipped.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void readsQuotedCsvFields() throws IOException {
+        Path csv = write(".csv", "# comment\n"
+                + "scenario,username,expectedError\n"
+                + "\n"
+                + "plain,standard_user,\n"
+                + "comma,\"a, b\",\"Epic sadface: Sorry, locked out.\"\n"
+                + "quote,\"say \"\"hi\"\"\",x\n"
+                + "multi-line,\"first\n"
+                + "second, still quoted\n"
+                + "third\",y\n"
+                + "# trailing comment\n");
+        List<Object[]> rows = rows(DataRows.open(csv.toString()));
+        Assert.assertEquals(rows.size(), 4);
+        Assert.assertEquals(rows.get(0), new Object[]{"plain", "standard_user", ""});
+        Assert.assertEquals(rows.get(1), new Object[]{"comma", "a, b", "Epic sadface: Sorry, locked out."});
+        Assert.assertEquals(rows.get(2), new Object[]{"quote", "say \"hi\"", "x"});
+        Assert.assertEquals(rows.get(3), new Object[]{"multi-line", "first\nsecond, still quoted\nthird", "y"});
+    }
+
+    /**
+     * A record with the wrong number of fields names its line, counting the lines of multi-line fields.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void rejectsCsvRecordsOfTheWrongWidth() throws IOException {
+        Path csv = write(".csv", "a,b\n\"1\n2\",3\n4,5,6\n");
+        Iterator<Object[]> rows = DataRows.open(csv.toString());
+        Assert.assertEquals(rows.next(), new Object[]{"1\n2", "3"});
+        IllegalArgumentException e = Assert.expectThrows(IllegalArgumentException.class, rows::hasNext);
+        Assert.assertTrue(e.getMessage().contains(":4 has 3 fields, the header has 2"), e.getMessage());
+    }
+
+    /**
+     * A quote that is never closed fails instead of swallowing the rest of the file silently.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void rejectsUnterminatedQuotes() throws IOException {
+        Path csv = write(".csv", "a,b\n\"open,1\n2,3\n");
+        Assert.expectThrows(IllegalArgumentException.class, () -> rows(DataRows.open(csv.toString())));
+    }
+
+    /**
+     * The keys of the first YAML mapping are the columns; later mappings may leave columns out or reorder them,
+     * and plain nulls become "".
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void readsYamlMappingsInColumnOrder() throws IOException {
+        Path yaml = write(".yaml", "# negative inputs\n"
+                + "- scenario: first\n"
+                + "  username: \"' OR '1'='1\"\n"
+                + "  password: secret\n"
+                + "  expectedError: error\n"
+                + "- password: only\n"
+                + "  scenario: reordered\n"
+                + "- scenario: nulls\n"
+                + "  username: ~\n"
+                + "  password: null\n"
+                + "  expectedError: \"null\"\n");
+        List<Object[]> rows = rows(DataRows.open(yaml.toString()));
+        Assert.assertEquals(rows.size(), 3);
+        Assert.assertEquals(rows.get(0), new Object[]{"first", "' OR '1'='1", "secret", "error"});
+        Assert.assertEquals(rows.get(1), new Object[]{"reordered", "", "only", ""});
+        Assert.assertEquals(rows.get(2), new Object[]{"nulls", "", "", "null"});
+    }
+
+    /**
+     * YAML rows must be flat mappings with the columns of the first one.
+     *
+     * @throws IOException If the data sets cannot be written.
+     */
+    @Test
+    public void rejectsMalformedYaml() throws IOException {
+        Path unknownColumn = write(".yml", "- a: 1\n- b: 2\n");
+        Assert.expectThrows(IllegalArgumentException.class, () -> rows(DataRows.open(unknownColumn.toString())));
+        Path nested = write(".yml", "- a:\n    b: 1\n");
+        Assert.expectThrows(IllegalArgumentException.class, () -> rows(DataRows.open(nested.toString())));
+        Path scalars = write(".yml", "- one\n- two\n");
+        Assert.expectThrows(IllegalArgumentException.class, () -> rows(DataRows.open(scalars.toString())));
+    }
+
+    /**
+     * With data.shard=i/N, shard i gets rows i, i+N, i+2N and so on, and the shards together get every row once.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void shardsSplitTheRows() throws IOException {
+        StringBuilder content = new StringBuilder("n\n");
+        for (int i = 0; i < 7; i++) {
+            content.append(i).append('\n');
+        }
+        Path csv = write(".csv", content.toString());
+        List<Object> all = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            System.setProperty("data.shard", shard + "/3");
+            for (Object[] row : rows(DataRows.open(csv.toString()))) {
+                all.add(row[0]);
+            }
+        }
+        Assert.assertEquals(all, List.of("0", "3", "6", "1", "4", "2", "5"));
+
+        System.setProperty("data.shard", "6/7");
+        Assert.assertEquals(rows(DataRows.open(csv.toString())).size(), 1);
+    }
+
+    /**
+     * A shard past the end of the data set is empty.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void shardBeyondTheRowsIsEmpty() throws IOException {
+        Path csv = write(".csv", "n\n0\n1\n");
+        System.setProperty("data.shard", "3/4");
+        Iterator<Object[]> rows = DataRows.open(csv.toString());
+        Assert.assertFalse(rows.hasNext());
+        Assert.expectThrows(NoSuchElementException.class, rows::next);
+    }
+
+    /**
+     * An invalid data.shard fails when the data set is opened.
+     *
+     * @throws IOException If the data set cannot be written.
+     */
+    @Test
+    public void rejectsInvalidShards() throws IOException {
+        Path csv = write(".csv", "n\n0\n");
+        for (String shard : new String[]{"3/3", "-1/3", "0/0", "1", "a/b"}) {
+            System.setProperty("data.shard", shard);
+            Assert.expectThrows(IllegalArgumentException.class, () -> DataRows.open(csv.toString()));
+        }
+    }
+
+    /**
+     * Data sets are found on the classpath, and other formats are rejected.
+     */
+    @Test
+    public void opensClasspathResources() {
+        List<Object[]> rows = rows(DataRows.open("data/login-credentials.csv"));
+        Assert.assertFalse(rows.isEmpty());
+        rows.forEach(row -> Assert.assertEquals(row.length, 4));
+        Assert.expectThrows(IllegalArgumentException.class, () -> DataRows.open("data/missing.csv"));
+        Assert.expectThrows(IllegalArgumentException.class, () -> DataRows.open("data/login-credentials.json"));
+    }
+
+    private static Path write(String suffix, String content) throws IOException {
+        Path file = Files.createTempFile("rows", suffix);
+        file.toFile().deleteOnExit();
+        return Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private static List<Object[]> rows(Iterator<Object[]> iterator) {
+        List<Object[]> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+        return rows;
+    }
+}
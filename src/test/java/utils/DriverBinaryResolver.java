@@ -0,0 +1,278 @@
+package utils;
+
+import org.openqa.selenium.manager.SeleniumManager;
+import org.openqa.selenium.manager.SeleniumManagerOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Resolves the driver binary (chromedriver, geckodriver, msedgedriver) of each browser once per JVM and
+ * sets the matching webdriver.*.driver system property, so starting a browser does not run any version
+ * detection. Lookup order:
+ * <ol>
+ *     <li>the system property itself, if it is already set</li>
+ *     <li>the CHROMEDRIVER_PATH, GECKODRIVER_PATH or EDGEDRIVER_PATH environment variable</li>
+ *     <li>the drivers.dir directory (default: drivers)</li>
+ *     <li>the manifest of earlier resolutions (drivers.manifest), if the binary it points to still exists</li>
+ *     <li>Selenium Manager, in offline mode unless drivers.offline=false</li>
+ * </ol>
+ * Binaries resolved by Selenium Manager are written to the manifest together with the driver version, so later runs
+ * skip Selenium Manager. Binaries found through the property, the environment variable or drivers.dir are not recorded:
+ * those locations are checked first on every run anyway.
+ */
+public class DriverBinaryResolver {
+
+    // Logger for logging messages related to driver resolution
+    private static final Logger logger = LoggerFactory.getLogger(DriverBinaryResolver.class);
+    private static final boolean WINDOWS = System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+
+    // Resolved binaries per browser, for the lifetime of the JVM
+    private static final Map<String, Resolution> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * The browsers with a driver binary.
+     */
+    private enum Driver {
+        CHROME("chrome", "chromedriver", "webdriver.chrome.driver", "CHROMEDRIVER_PATH"),
+        FIREFOX("firefox", "geckodriver", "webdriver.gecko.driver", "GECKODRIVER_PATH"),
+        EDGE("edge", "msedgedriver", "webdriver.edge.driver", "EDGEDRIVER_PATH");
+
+        private final String browser;
+        private final String binary;
+        private final String property;
+        private final String environmentVariable;
+
+        Driver(String browser, String binary, String property, String environmentVariable) {
+            this.browser = browser;
+            this.binary = binary;
+            this.property = property;
+            this.environmentVariable = environmentVariable;
+        }
+
+        private static Driver of(String browser) {
+            for (Driver driver : values()) {
+                if (driver.browser.equalsIgnoreCase(browser)) {
+                    return driver;
+                }
+            }
+            throw new IllegalArgumentException("Browser " + browser + " not supported.");
+        }
+    }
+
+    /**
+     * Makes sure the driver binary of a browser is known, resolving it on the first call only.
+     *
+     * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
+     * @return The path of the driver binary.
+     * @throws IllegalStateException If no driver binary can be found.
+     */
+    public static Path resolve(String browser) {
+        Driver driver = Driver.of(browser);
+        Resolution resolution = resolved.computeIfAbsent(driver.browser, key -> lookUp(driver));
+        System.setProperty(driver.property, resolution.path.toString());
+        return resolution.path;
+    }
+
+    /**
+     * Returns the system property that holds the driver binary of a browser, e.g. webdriver.chrome.driver.
+     *
+     * @param browser The name of the browser.
+     * @return The property name.
+     */
+    public static String property(String browser) {
+        return Driver.of(browser).property;
+    }
+
+    /**
+     * Forgets a binary that came from the manifest, e.g. because the browser was updated and no longer
+     * accepts it, and removes it from the manifest, so the next {@link #resolve(String)} asks Selenium Manager again.
+     *
+     * @param browser The name of the browser.
+     * @return True if the binary came from the manifest and was forgotten, false if resolving again would not help.
+     */
+    public static boolean invalidate(String browser) {
+        Driver driver = Driver.of(browser);
+        Resolution resolution = resolved.get(driver.browser);
+        if (resolution == null || !"manifest".equals(resolution.source)) {
+            return false;
+        }
+        resolved.remove(driver.browser);
+        System.clearProperty(driver.property);
+        updateManifest(manifest -> {
+            manifest.remove(driver.browser + ".driver");
+            manifest.remove(driver.browser + ".version");
+            manifest.remove(driver.browser + ".resolvedAt");
+        });
+        logger.warn("Driver {} from the manifest was rejected, resolving {} again", resolution.path, driver.binary);
+        return true;
+    }
+
+    /**
+     * Looks the binary up in every location, in order.
+     */
+    private static Resolution lookUp(Driver driver) {
+        long start = System.nanoTime();
+        Resolution resolution = fromPath(System.getProperty(driver.property), "system property " + driver.property);
+        if (resolution == null) {
+            resolution = fromPath(System.getenv(driver.environmentVariable), "environment variable " + driver.environmentVariable);
+        }
+        if (resolution == null) {
+            resolution = fromPath(Path.of(TestConfig.get("drivers.dir", "drivers"), binaryName(driver)).toString(), "drivers.dir");
+        }
+        if (resolution == null) {
+            resolution = fromManifest(driver);
+        }
+        if (resolution == null) {
+            resolution = fromSeleniumManager(driver);
+            writeManifest(driver, resolution);
+        }
+        logger.info("Using {} {} from {} (resolved in {} ms)", driver.binary, resolution.version, resolution.source,
+                (System.nanoTime() - start) / 1_000_000);
+        return resolution;
+    }
+
+    private static Resolution fromPath(String path, String source) {
+        if (!isBinary(path)) {
+            return null;
+        }
+        return new Resolution(Path.of(path).toAbsolutePath(), source, versionOf(Path.of(path)));
+    }
+
+    private static Resolution fromManifest(Driver driver) {
+        Properties manifest = readManifest();
+        String path = manifest.getProperty(driver.browser + ".driver");
+        if (!isBinary(path)) {
+            return null;
+        }
+        return new Resolution(Path.of(path), "manifest", manifest.getProperty(driver.browser + ".version", ""));
+    }
+
+    private static Resolution fromSeleniumManager(Driver driver) {
+        boolean offline = TestConfig.getBoolean("drivers.offline", true);
+        List<String> arguments = new ArrayList<>(List.of("--browser", driver.browser));
+        if (offline) {
+            arguments.add("--offline"); // Only use drivers already in the Selenium Manager cache; never download
+        }
+        try {
+            SeleniumManagerOutput.Result result = SeleniumManager.getInstance().getBinaryPaths(arguments);
+            if (isBinary(result.getDriverPath())) {
+                Path path = Path.of(result.getDriverPath());
+                return new Resolution(path, "Selenium Manager" + (offline ? " (offline)" : ""), versionOf(path));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Selenium Manager could not resolve {}: {}", driver.binary, e.getMessage());
+        }
+        throw new IllegalStateException("No " + driver.binary + " found. Set " + driver.environmentVariable
+                + ", put the binary in " + Path.of(TestConfig.get("drivers.dir", "drivers")).toAbsolutePath()
+                + (offline ? ", or run once with -Ddrivers.offline=false to let Selenium Manager download it" : ""));
+    }
+
+    /**
+     * Asks a driver binary for its version, e.g. "ChromeDriver 128.0.6613.119 (...)".
+     */
+    private static String versionOf(Path binary) {
+        try {
+            Process process = new ProcessBuilder(binary.toString(), "--version").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                process.waitFor(5, TimeUnit.SECONDS);
+                return line != null ? line.trim() : "";
+            }
+        } catch (IOException e) {
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+
+    private static boolean isBinary(String path) {
+        return path != null && !path.isBlank() && Files.isRegularFile(Path.of(path)) && Files.isExecutable(Path.of(path));
+    }
+
+    private static String binaryName(Driver driver) {
+        return WINDOWS ? driver.binary + ".exe" : driver.binary;
+    }
+
+    private static Path manifestPath() {
+        return Path.of(TestConfig.get("drivers.manifest",
+                Path.of(System.getProperty("user.home"), ".cache", "selenium-testng", "drivers.properties").toString()));
+    }
+
+    private static Properties readManifest() {
+        Properties manifest = new Properties();
+        Path path = manifestPath();
+        if (Files.isRegularFile(path)) {
+            try (InputStream input = Files.newInputStream(path)) {
+                manifest.load(input);
+            } catch (IOException e) {
+                logger.warn("Failed to read driver manifest {}: {}", path, e.getMessage());
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Records a resolution in the manifest.
+     */
+    private static void writeManifest(Driver driver, Resolution resolution) {
+        updateManifest(manifest -> {
+            manifest.setProperty(driver.browser + ".driver", resolution.path.toString());
+            manifest.setProperty(driver.browser + ".version", resolution.version);
+            manifest.setProperty(driver.browser + ".resolvedAt", Instant.now().toString());
+        });
+    }
+
+    /**
+     * Reads the manifest, applies a change and writes it back. The file is replaced atomically, since test JVMs
+     * of parallel builds may share it.
+     */
+    private static synchronized void updateManifest(Consumer<Properties> change) {
+        Path path = manifestPath();
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            Properties manifest = readManifest();
+            change.accept(manifest);
+            Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "drivers", ".tmp");
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                manifest.store(output, "Driver binaries resolved by DriverBinaryResolver");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write driver manifest {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * A resolved binary and where it was found.
+     */
+    private static class Resolution {
+        private final Path path;
+        private final String source;
+        private final String version;
+
+        private Resolution(Path path, String source, String version) {
+            this.path = path;
+            this.source = source;
+            this.version = version;
+        }
+    }
+}
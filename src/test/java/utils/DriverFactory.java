@@ -1,5 +1,7 @@
 package utils;
 
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.SessionNotCreatedException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -7,46 +9,178 @@ import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.remote.Augmenter;
+import org.openqa.selenium.remote.RemoteWebDriver;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class DriverFactory {
 
+    // Time from launching a browser until its session is ready, per browser and launch profile
+    private static final Map<String, LatencyHistogram> startupTimes = new ConcurrentHashMap<>();
+
     /**
      * Returns a WebDriver instance based on the specified browser type.
+     * With metrics.latency=true the driver is decorated with a {@link LatencyListener} that times every command,
+     * and while test impact is recorded with an {@link ImpactListener} that records the locators of each test.
      *
      * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
      * @return The WebDriver instance for the specified browser.
      */
     public static WebDriver getDriver(String browser) {
+        WebDriver driver = createDriver(browser);
+        if (TestConfig.getBoolean("metrics.latency", false)) {
+            driver = LatencyListener.decorate(driver);
+        }
+        return TestImpact.isRecording() ? ImpactListener.decorate(driver) : driver;
+    }
+
+    /**
+     * Creates a new browser session based on the specified browser type, using the current {@link LaunchProfile}:
+     * a local browser, or with driver.mode=remote a session on the Selenium Grid at grid.url.
+     * The time the browser takes to start is recorded per browser and profile.
+     *
+     * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
+     * @return The WebDriver instance for the specified browser.
+     */
+    private static WebDriver createDriver(String browser) {
+        LaunchProfile profile = LaunchProfile.current();
+        NetworkPolicy.checkConfiguration(); // A bad network.* setting fails here, before a browser is started
+        WebDriver driver;
         // Determine which browser to use based on the provided parameter
         switch (browser.toLowerCase()) {
             case "chrome":
-                WebDriverManager.chromedriver().setup(); // Set up the ChromeDriver using WebDriverManager
-                ChromeOptions chromeOptions = new ChromeOptions();
-                // Add Chrome-specific options
-                chromeOptions.addArguments("--headless"); // Run Chrome in headless mode
-                chromeOptions.addArguments("--incognito"); // Run Chrome in incognito mode
-                return new ChromeDriver(chromeOptions); // Return a new instance of ChromeDriver
+                // Headless mode, page load strategy, window size, incognito and extra flags come from the launch profile
+                ChromeOptions chromeOptions = profile.applyTo(new ChromeOptions());
+                TimeoutPolicy.applyTo(chromeOptions); // Zero implicit wait, page load and script timeouts from config
+                ReplayProxy.applyTo(chromeOptions); // Proxy port of the session when replay.mode is record or replay
+                driver = launch(browser, profile, chromeOptions, () -> new ChromeDriver(chromeOptions));
+                ReplayProxy.bind(driver, chromeOptions);
+                break;
 
             case "firefox":
-                WebDriverManager.firefoxdriver().setup(); // Set up the FirefoxDriver using WebDriverManager
-                FirefoxOptions firefoxOptions = new FirefoxOptions();
-                // Add Firefox-specific options
-                firefoxOptions.addArguments("-private"); // Run Firefox in private mode
-                firefoxOptions.addArguments("--headless"); // Run Firefox in headless mode
-                return new FirefoxDriver(firefoxOptions); // Return a new instance of FirefoxDriver
+                // Headless mode, page load strategy, window size, private mode and extra flags come from the launch profile
+                FirefoxOptions firefoxOptions = profile.applyTo(new FirefoxOptions());
+                TimeoutPolicy.applyTo(firefoxOptions); // Zero implicit wait, page load and script timeouts from config
+                ReplayProxy.applyTo(firefoxOptions); // Proxy port of the session when replay.mode is record or replay
+                driver = launch(browser, profile, firefoxOptions, () -> new FirefoxDriver(firefoxOptions));
+                ReplayProxy.bind(driver, firefoxOptions);
+                break;
 
             case "edge":
-                WebDriverManager.edgedriver().setup(); // Set up the EdgeDriver using WebDriverManager
-                EdgeOptions edgeOptions = new EdgeOptions();
-                // Add Edge-specific options
-                edgeOptions.addArguments("--inprivate"); // Run Edge in private mode
-                edgeOptions.addArguments("--headless"); // Run Edge in headless mode
-                return new EdgeDriver(edgeOptions); // Return a new instance of EdgeDriver
+                // Headless mode, page load strategy, window size, InPrivate and extra flags come from the launch profile
+                EdgeOptions edgeOptions = profile.applyTo(new EdgeOptions());
+                TimeoutPolicy.applyTo(edgeOptions); // Zero implicit wait, page load and script timeouts from config
+                ReplayProxy.applyTo(edgeOptions); // Proxy port of the session when replay.mode is record or replay
+                driver = launch(browser, profile, edgeOptions, () -> new EdgeDriver(edgeOptions));
+                ReplayProxy.bind(driver, edgeOptions);
+                break;
 
             default:
                 // Throw an exception if the browser is not supported
                 throw new IllegalArgumentException("Browser " + browser + " not supported.");
         }
+        profile.sizeWindow(driver); // Only a maximized, visible window needs a command; fixed sizes are launch flags
+        NetworkPolicy.applyTo(driver, browser); // Block images, fonts and analytics; see network.* in test-config.properties
+        return driver;
+    }
+
+    /**
+     * Starts a browser with the driver binary resolved by {@link DriverBinaryResolver} and records its start-up time.
+     * If the browser rejects a driver taken from the manifest (e.g. after a browser update), the driver is resolved
+     * again and the browser started once more. With driver.mode=remote, the session is requested from the Grid instead.
+     *
+     * @param browser  The name of the browser.
+     * @param profile  The launch profile the options were built from.
+     * @param options  The options of the session.
+     * @param launcher Starts the browser locally.
+     * @return The new WebDriver.
+     */
+    private static WebDriver launch(String browser, LaunchProfile profile, Capabilities options, Supplier<WebDriver> launcher) {
+        if (GridCapacity.isEnabled()) {
+            return launchRemote(browser, profile, options);
+        }
+        DriverBinaryResolver.resolve(browser); // Resolved once per JVM; no version detection per session
+        long start = System.nanoTime();
+        WebDriver driver;
+        try {
+            driver = launcher.get();
+        } catch (SessionNotCreatedException e) {
+            if (!DriverBinaryResolver.invalidate(browser)) {
+                throw e;
+            }
+            DriverBinaryResolver.resolve(browser);
+            start = System.nanoTime();
+            driver = launcher.get();
+        }
+        startupTimes.computeIfAbsent(browser.toLowerCase() + " (" + profile.getName() + ")", key -> new LatencyHistogram())
+                .recordNanos(System.nanoTime() - start);
+        return driver;
+    }
+
+    /**
+     * Requests a session from the Selenium Grid once {@link GridCapacity} finds a free slot for the browser,
+     * and records the time the Grid takes to start it. The driver is augmented, so DevTools work on Chromium
+     * sessions as they do locally.
+     *
+     * @param browser The name of the browser.
+     * @param profile The launch profile the options were built from.
+     * @param options The options of the session.
+     * @return The new RemoteWebDriver.
+     */
+    private static WebDriver launchRemote(String browser, LaunchProfile profile, Capabilities options) {
+        String gridUrl = GridCapacity.gridUrl();
+        GridCapacity.acquire(options.getBrowserName()); // Waits for a free slot instead of queueing on the Grid
+        long start = System.nanoTime();
+        WebDriver driver;
+        try {
+            driver = new Augmenter().augment(new RemoteWebDriver(URI.create(gridUrl).toURL(), options));
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid grid.url " + gridUrl, e);
+        } finally {
+            GridCapacity.release(options.getBrowserName());
+        }
+        startupTimes.computeIfAbsent(browser.toLowerCase() + " (" + profile.getName() + ", remote)", key -> new LatencyHistogram())
+                .recordNanos(System.nanoTime() - start);
+        return driver;
+    }
+
+    /**
+     * Builds a summary of the browser start-up times per browser and launch profile.
+     *
+     * @return One summary line per browser and profile.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        new TreeMap<>(startupTimes).forEach((name, histogram) -> summaries.add(String.format(
+                "Browser start-up (%s): count=%d, p50=%dms, max=%dms", name, histogram.getCount(),
+                histogram.getValueAtPercentile(50) / 1_000, histogram.getMaxMicros() / 1_000)));
+        return summaries;
+    }
+
+    /**
+     * Leases a warm WebDriver for the specified browser from the shared pool.
+     * The driver stays leased to the calling thread until {@link #releaseDriver()} is called.
+     *
+     * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
+     * @return The pooled WebDriver instance for the specified browser.
+     */
+    public static WebDriver acquireDriver(String browser) {
+        return WebDriverPool.forBrowser(browser).acquire();
+    }
+
+    /**
+     * Returns the WebDriver leased by the calling thread to its pool.
+     * The session is reset rather than quit so the next test can reuse the running browser.
+     */
+    public static void releaseDriver() {
+        WebDriverPool.releaseCurrent();
     }
 }
@@ -0,0 +1,147 @@
+package utils;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Per-thread browser session: the leased WebDriver together with its element state engine, logger and base URL.
+ * Page objects receive a session through their constructor instead of sharing static state,
+ * which allows TestNG to run test methods in parallel.
+ */
+public class DriverSession {
+
+    // Session bound to the current test thread
+    private static final ThreadLocal<DriverSession> currentSession = new ThreadLocal<>();
+
+    private final String browser;
+    private final String baseUrl;
+    private final WebDriver driver;
+    private final ElementStateEngine stateEngine;
+    private final Logger logger;
+    // Page objects created for this session, keyed by page class
+    private final Map<Class<?>, Object> pages = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a session around an existing WebDriver.
+     *
+     * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
+     * @param baseUrl The base URL of the application under test.
+     * @param driver  The WebDriver backing this session.
+     */
+    public DriverSession(String browser, String baseUrl, WebDriver driver) {
+        this.browser = browser;
+        this.baseUrl = baseUrl;
+        this.driver = driver;
+        this.stateEngine = new ElementStateEngine(driver);
+        this.logger = loggerFor(browser);
+    }
+
+    /**
+     * Opens a session for the current thread by leasing a driver from the pool.
+     * If the thread already has a session, that session is returned.
+     *
+     * @param browser The name of the browser.
+     * @param baseUrl The base URL of the application under test.
+     * @return The session bound to the current thread.
+     */
+    public static DriverSession open(String browser, String baseUrl) {
+        DriverSession session = currentSession.get();
+        if (session == null) {
+            session = new DriverSession(browser, baseUrl, DriverFactory.acquireDriver(browser));
+            currentSession.set(session);
+        }
+        return session;
+    }
+
+    /**
+     * Returns the session bound to the current thread.
+     *
+     * @return The current session.
+     * @throws IllegalStateException If no session has been opened on this thread.
+     */
+    public static DriverSession current() {
+        DriverSession session = currentSession.get();
+        if (session == null) {
+            throw new IllegalStateException("No DriverSession is open on thread " + Thread.currentThread().getName());
+        }
+        return session;
+    }
+
+    /**
+     * Returns the session bound to the current thread, if any.
+     *
+     * @return The current session, or null.
+     */
+    public static DriverSession currentOrNull() {
+        return currentSession.get();
+    }
+
+    /**
+     * Closes the current thread's session and returns its driver to the pool.
+     */
+    public static void closeCurrent() {
+        DriverSession session = currentSession.get();
+        if (session != null) {
+            currentSession.remove();
+            DriverFactory.releaseDriver();
+        }
+    }
+
+    /**
+     * Returns the page object of the given type for this session, creating it on first use.
+     * The page is added to the footprint of the current test (see {@link TestImpact}).
+     *
+     * @param pageClass The page object class.
+     * @param factory   Creates the page object from this session.
+     * @param <T>       The page object type.
+     * @return The page object bound to this session.
+     */
+    public <T> T page(Class<T> pageClass, Function<DriverSession, T> factory) {
+        TestImpact.usePage(pageClass);
+        return pageClass.cast(pages.computeIfAbsent(pageClass, key -> factory.apply(this)));
+    }
+
+    public String getBrowser() {
+        return browser;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public WebDriver getDriver() {
+        return driver;
+    }
+
+    public ElementStateEngine getStateEngine() {
+        return stateEngine;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Returns the logger configured for the specified browser in log4j2.xml.
+     *
+     * @param browser The name of the browser.
+     * @return The browser-specific logger.
+     */
+    private static Logger loggerFor(String browser) {
+        switch (browser.toLowerCase()) {
+            case "chrome":
+                return LoggerFactory.getLogger("ChromeLogger");
+            case "firefox":
+                return LoggerFactory.getLogger("FirefoxLogger");
+            case "edge":
+                return LoggerFactory.getLogger("EdgeLogger");
+            default:
+                return LoggerFactory.getLogger(DriverSession.class);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package utils;
+
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Orders the methods of each &lt;test&gt; longest first (schedule.lpt), by the durations in the {@link DurationStore}.
+ * Worker threads take the next method as soon as they are free, so the longest-first order is the
+ * longest-processing-time-first schedule: long tests start early and short ones fill the gaps at the end,
+ * which keeps the makespan of a parallel run close to its lower bound. Each browser's &lt;test&gt; is scheduled on
+ * its own threads with its own durations.
+ * <p>
+ * The makespan of the schedule is predicted by simulating the threads, and reported next to the actual duration.
+ * Registered as a listener in testng.xml.
+ */
+public class DurationScheduler implements IMethodInterceptor {
+
+    // Predicted makespan per <test>, in milliseconds
+    private static final Map<String, Prediction> predictions = new LinkedHashMap<>();
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        XmlTest xmlTest = context.getCurrentXmlTest();
+        String browser = xmlTest.getParameter("browser");
+        long fallback = DurationStore.defaultEstimate();
+        Map<IMethodInstance, Long> estimates = new LinkedHashMap<>();
+        int known = 0;
+        for (IMethodInstance method : methods) {
+            long estimate = DurationStore.estimate(DurationStore.testName(method.getMethod().getRealClass(),
+                    method.getMethod().getMethodName(), browser));
+            if (estimate >= 0) {
+                known++;
+            }
+            estimates.put(method, estimate >= 0 ? estimate : fallback);
+        }
+
+        List<IMethodInstance> ordered = new ArrayList<>(methods);
+        if (TestConfig.getBoolean("schedule.lpt", true)) {
+            // Stable sort: methods with equal estimates keep their declared order
+            ordered.sort(Comparator.comparing(estimates::get, Comparator.reverseOrder()));
+        }
+        int threads = isParallel(xmlTest.getParallel()) ? Math.max(1, xmlTest.getThreadCount()) : 1;
+        List<Long> durations = new ArrayList<>();
+        ordered.forEach(method -> durations.add(estimates.get(method)));
+        synchronized (predictions) {
+            predictions.put(context.getName(), new Prediction(makespan(durations, threads), threads, methods.size(), known));
+        }
+        return ordered;
+    }
+
+    /**
+     * Simulates worker threads that each take the next method in order as soon as they are free.
+     *
+     * @param durations The method durations, in execution order.
+     * @param threads   The number of worker threads.
+     * @return The time until the last method finishes.
+     */
+    static long makespan(List<Long> durations, int threads) {
+        PriorityQueue<Long> finishTimes = new PriorityQueue<>();
+        for (int i = 0; i < threads; i++) {
+            finishTimes.add(0L);
+        }
+        long makespan = 0;
+        for (long duration : durations) {
+            long finish = finishTimes.poll() + duration;
+            makespan = Math.max(makespan, finish);
+            finishTimes.add(finish);
+        }
+        return makespan;
+    }
+
+    /**
+     * Builds a comparison of the predicted and actual makespan of each &lt;test&gt; and of the suite.
+     * &lt;test&gt; blocks of a suite with parallel="tests" (the browser matrix) run side by side, otherwise one after another.
+     *
+     * @param suite The finished suite.
+     * @return The summary lines.
+     */
+    public static List<String> metricsSummary(ISuite suite) {
+        List<String> summaries = new ArrayList<>();
+        boolean concurrent = suite.getXmlSuite().getParallel() == XmlSuite.ParallelMode.TESTS;
+        long predictedTotal = 0;
+        long start = Long.MAX_VALUE;
+        long end = 0;
+        synchronized (predictions) {
+            for (ISuiteResult result : suite.getResults().values()) {
+                ITestContext context = result.getTestContext();
+                Prediction prediction = predictions.get(context.getName());
+                if (prediction == null) {
+                    continue;
+                }
+                long actual = context.getEndDate().getTime() - context.getStartDate().getTime();
+                start = Math.min(start, context.getStartDate().getTime());
+                end = Math.max(end, context.getEndDate().getTime());
+                predictedTotal = concurrent ? Math.max(predictedTotal, prediction.makespan) : predictedTotal + prediction.makespan;
+                summaries.add(String.format("Schedule (%s): %d methods (%d with history) on %d threads, predicted %.1fs, actual %.1fs",
+                        context.getName(), prediction.methods, prediction.known, prediction.threads,
+                        prediction.makespan / 1000.0, actual / 1000.0));
+            }
+        }
+        if (end > 0) {
+            summaries.add(String.format("Schedule (%s, %s): predicted makespan %.1fs, actual %.1fs",
+                    TestConfig.getBoolean("schedule.lpt", true) ? "longest first" : "declared order",
+                    concurrent ? "tests in parallel" : "tests in sequence", predictedTotal / 1000.0, (end - start) / 1000.0));
+        }
+        return summaries;
+    }
+
+    private static boolean isParallel(XmlSuite.ParallelMode mode) {
+        return mode == XmlSuite.ParallelMode.METHODS || mode == XmlSuite.ParallelMode.CLASSES
+                || mode == XmlSuite.ParallelMode.INSTANCES;
+    }
+
+    /**
+     * The predicted schedule of one &lt;test&gt;.
+     */
+    private static class Prediction {
+        private final long makespan;
+        private final int threads;
+        private final int methods;
+        private final int known;
+
+        private Prediction(long makespan, int threads, int methods, int known) {
+            this.makespan = makespan;
+            this.threads = threads;
+            this.methods = methods;
+            this.known = known;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link DurationScheduler#makespan(List, int)}; they run without a browser.
+ */
+public class DurationSchedulerTest {
+
+    /**
+     * No methods take no time.
+     */
+    @Test
+    public void emptyScheduleTakesNoTime() {
+        Assert.assertEquals(DurationScheduler.makespan(List.of(), 4), 0);
+    }
+
+    /**
+     * On a single thread, methods run one after another.
+     */
+    @Test
+    public void singleThreadTakesTheSum() {
+        Assert.assertEquals(DurationScheduler.makespan(List.of(300L, 100L, 200L), 1), 600);
+    }
+
+    /**
+     * With a thread per method, the longest method decides.
+     */
+    @Test
+    public void enoughThreadsTakeTheLongest() {
+        Assert.assertEquals(DurationScheduler.makespan(List.of(300L, 100L, 200L), 3), 300);
+        Assert.assertEquals(DurationScheduler.makespan(List.of(300L, 100L, 200L), 8), 300);
+    }
+
+    /**
+     * Each method goes to the thread that is free first, in the given order.
+     */
+    @Test
+    public void methodsGoToTheFirstFreeThread() {
+        // Thread 1: 7, then 4 (ends at 11); thread 2: 6, then 5 (ends at 11), then 3 (ends at 14)
+        Assert.assertEquals(DurationScheduler.makespan(List.of(7L, 6L, 5L, 4L, 3L), 2), 14);
+    }
+
+    /**
+     * The makespan depends on the order: longest first leaves no long method for the end.
+     */
+    @Test
+    public void longestFirstShortensTheMakespan() {
+        Assert.assertEquals(DurationScheduler.makespan(List.of(3L, 4L, 5L, 6L, 7L), 2), 15);
+        Assert.assertEquals(DurationScheduler.makespan(List.of(7L, 6L, 5L, 4L, 3L), 2), 14);
+        Assert.assertEquals(DurationScheduler.makespan(List.of(1L, 1L, 10L), 2), 11);
+        Assert.assertEquals(DurationScheduler.makespan(List.of(10L, 1L, 1L), 2), 10);
+    }
+
+    /**
+     * Threads that finish at the same time are interchangeable, so equal durations spread evenly.
+     */
+    @Test
+    public void equalDurationsSpreadEvenly() {
+        Assert.assertEquals(DurationScheduler.makespan(List.of(5L, 5L, 5L, 5L, 5L, 5L), 3), 10);
+        Assert.assertEquals(DurationScheduler.makespan(List.of(5L, 5L, 5L, 5L, 5L, 5L, 5L), 3), 15);
+    }
+}
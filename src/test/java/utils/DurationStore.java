@@ -0,0 +1,168 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durations of earlier test runs, for scheduling (see {@link DurationScheduler}). Every finished test appends
+ * "test&lt;TAB&gt;milliseconds" to an append-only file (durations.file); the estimate of a test is the median of its
+ * last durations.history durations. When the file holds more than four times the retained samples,
+ * it is compacted to the retained samples on load.
+ */
+public class DurationStore {
+
+    // Logger for logging messages related to the duration store
+    private static final Logger logger = LoggerFactory.getLogger(DurationStore.class);
+
+    // Most recent durations per test, oldest first; loaded on first use
+    private static Map<String, Deque<Long>> history;
+
+    /**
+     * Names a test by class, method and browser, e.g. "LoginTest.validUserLogin [chrome]".
+     *
+     * @param testClass The test class.
+     * @param method    The test method name.
+     * @param browser   The browser parameter of the &lt;test&gt;, or null.
+     * @return The test name.
+     */
+    public static String testName(Class<?> testClass, String method, String browser) {
+        return testName(testClass.getSimpleName(), method, browser);
+    }
+
+    /**
+     * Names a test by the simple name of its class, method and browser, as the report journal records them.
+     *
+     * @param className The simple name of the test class.
+     * @param method    The test method name.
+     * @param browser   The browser parameter of the &lt;test&gt;, or null or empty.
+     * @return The test name.
+     */
+    public static String testName(String className, String method, String browser) {
+        String name = className + "." + method;
+        return browser != null && !browser.isEmpty() ? name + " [" + browser + "]" : name;
+    }
+
+    /**
+     * Records the duration of a finished test.
+     *
+     * @param test   The test name.
+     * @param millis The duration in milliseconds.
+     */
+    public static synchronized void record(String test, long millis) {
+        Deque<Long> samples = history().computeIfAbsent(test, key -> new ArrayDeque<>());
+        samples.addLast(millis);
+        if (samples.size() > retained()) {
+            samples.removeFirst();
+        }
+        try {
+            Path path = path();
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            Files.writeString(path, test + "\t" + millis + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warn("Failed to record the duration of {}: {}", test, e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the expected duration of a test.
+     *
+     * @param test The test name.
+     * @return The median of its recorded durations in milliseconds, or -1 if it has none.
+     */
+    public static synchronized long estimate(String test) {
+        Deque<Long> samples = history().get(test);
+        return samples == null || samples.isEmpty() ? -1 : median(new ArrayList<>(samples));
+    }
+
+    /**
+     * Returns the duration assumed for tests without history: the median estimate of all known tests,
+     * or durations.defaultMs if nothing is known yet.
+     *
+     * @return The duration in milliseconds.
+     */
+    public static synchronized long defaultEstimate() {
+        List<Long> estimates = new ArrayList<>();
+        for (String test : history().keySet()) {
+            estimates.add(estimate(test));
+        }
+        return estimates.isEmpty() ? TestConfig.getInt("durations.defaultMs", 5000) : median(estimates);
+    }
+
+    private static long median(List<Long> values) {
+        Collections.sort(values);
+        return values.get(values.size() / 2);
+    }
+
+    private static int retained() {
+        return TestConfig.getInt("durations.history", 5);
+    }
+
+    private static Path path() {
+        return Path.of(TestConfig.get("durations.file", "test-output/durations.tsv"));
+    }
+
+    /**
+     * Loads the file on first use, and compacts it if it has grown well beyond what is retained.
+     */
+    private static Map<String, Deque<Long>> history() {
+        if (history != null) {
+            return history;
+        }
+        history = new HashMap<>();
+        Path path = path();
+        if (!Files.isRegularFile(path)) {
+            return history;
+        }
+        int lines = 0;
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) {
+                    Deque<Long> samples = history.computeIfAbsent(line.substring(0, tab), key -> new ArrayDeque<>());
+                    samples.addLast(Long.parseLong(line.substring(tab + 1).trim()));
+                    if (samples.size() > retained()) {
+                        samples.removeFirst();
+                    }
+                    lines++;
+                }
+            }
+            int kept = history.values().stream().mapToInt(Deque::size).sum();
+            if (lines > 4 * kept) {
+                compact(path);
+                logger.info("Compacted {} from {} to {} durations", path, lines, kept);
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Failed to read test durations from {}: {}", path, e.getMessage());
+        }
+        return history;
+    }
+
+    /**
+     * Rewrites the file with the retained samples only. The file is replaced atomically.
+     */
+    private static void compact(Path path) throws IOException {
+        StringBuilder content = new StringBuilder();
+        history.forEach((test, samples) -> samples.forEach(millis ->
+                content.append(test).append('\t').append(millis).append(System.lineSeparator())));
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "durations", ".tmp");
+        Files.writeString(temp, content, StandardCharsets.UTF_8);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
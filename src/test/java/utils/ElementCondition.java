@@ -0,0 +1,85 @@
+package utils;
+
+import org.openqa.selenium.By;
+
+/**
+ * A locator together with the state it is expected to reach.
+ * Conditions are evaluated in the browser by {@link ElementStateEngine}, several at a time.
+ */
+public class ElementCondition {
+
+    /**
+     * The element states the engine can wait for.
+     */
+    public enum State {
+        PRESENT, VISIBLE, CLICKABLE, TEXT_EQUALS
+    }
+
+    private final By locator;
+    private final State state;
+    private final String expectedText;
+
+    private ElementCondition(By locator, State state, String expectedText) {
+        this.locator = locator;
+        this.state = state;
+        this.expectedText = expectedText;
+    }
+
+    /**
+     * Condition satisfied when the element exists in the DOM.
+     *
+     * @param locator The By locator of the web element.
+     * @return The condition.
+     */
+    public static ElementCondition present(By locator) {
+        return new ElementCondition(locator, State.PRESENT, null);
+    }
+
+    /**
+     * Condition satisfied when the element is displayed.
+     *
+     * @param locator The By locator of the web element.
+     * @return The condition.
+     */
+    public static ElementCondition visible(By locator) {
+        return new ElementCondition(locator, State.VISIBLE, null);
+    }
+
+    /**
+     * Condition satisfied when the element is displayed and enabled.
+     *
+     * @param locator The By locator of the web element.
+     * @return The condition.
+     */
+    public static ElementCondition clickable(By locator) {
+        return new ElementCondition(locator, State.CLICKABLE, null);
+    }
+
+    /**
+     * Condition satisfied when the element is displayed and its trimmed text equals the expected text.
+     *
+     * @param locator      The By locator of the web element.
+     * @param expectedText The expected text.
+     * @return The condition.
+     */
+    public static ElementCondition textEquals(By locator, String expectedText) {
+        return new ElementCondition(locator, State.TEXT_EQUALS, expectedText);
+    }
+
+    public By getLocator() {
+        return locator;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getExpectedText() {
+        return expectedText;
+    }
+
+    @Override
+    public String toString() {
+        return state.name().toLowerCase() + (expectedText != null ? " '" + expectedText + "'" : "") + " " + locator;
+    }
+}
@@ -0,0 +1,448 @@
+package utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waits for several element conditions at once by evaluating all of them in the browser
+ * instead of a findElement/isDisplayed/isEnabled round trip per locator.
+ * The strategy is selected with wait.strategy:
+ * <ul>
+ *     <li>batched - one executeScript call per poll, with a polling interval that starts short and backs off</li>
+ *     <li>event - one executeAsyncScript call that returns as soon as a DOM mutation satisfies the conditions</li>
+ *     <li>polling - one WebDriverWait per condition, kept for latency comparisons</li>
+ * </ul>
+ */
+public class ElementStateEngine {
+
+    /**
+     * The available wait strategies.
+     */
+    public enum Strategy {
+        POLLING, BATCHED, EVENT
+    }
+
+    // Locator strategies the in-browser scripts can resolve
+    private static final Set<String> SUPPORTED_STRATEGIES =
+            Set.of("id", "name", "class name", "css selector", "xpath", "tag name", "link text", "partial link text");
+    // Scripts evaluating a batch of conditions, loaded once per JVM
+    private static final String LIBRARY_SCRIPT = loadScript("js/element-state-lib.js");
+    private static final String STATE_SCRIPT = LIBRARY_SCRIPT + loadScript("js/element-state.js");
+    private static final String ASYNC_STATE_SCRIPT = LIBRARY_SCRIPT + loadScript("js/element-state-async.js");
+    private static final String ASYNC_READY_SCRIPT = loadScript("js/document-ready-async.js");
+    // Longest single executeAsyncScript call
+    private static final long MAX_ASYNC_SLICE_MILLIS = 10_000;
+
+    // Wait latency per strategy, so strategies can be compared at the end of the suite
+    private static final Map<Strategy, WaitStats> stats = new EnumMap<>(Strategy.class);
+
+    static {
+        for (Strategy strategy : Strategy.values()) {
+            stats.put(strategy, new WaitStats());
+        }
+    }
+
+    private final WebDriver driver;
+    private final Strategy strategy;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+    private final long recheckMillis;
+    private final long asyncSliceMillis;
+    // Whether an "interactive" document counts as ready, see LaunchProfile#isInteractiveReady
+    private final boolean interactiveReady;
+    // WebDriverWait objects per timeout, reused across waits
+    private final Map<Duration, WebDriverWait> waits = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an engine for the specified driver using the wait settings from test-config.properties.
+     *
+     * @param driver The WebDriver to evaluate conditions on.
+     */
+    public ElementStateEngine(WebDriver driver) {
+        this.driver = driver;
+        this.strategy = Strategy.valueOf(TestConfig.get("wait.strategy", "batched").toUpperCase());
+        this.initialPollMillis = Math.max(1, TestConfig.getInt("wait.poll.initialMs", 25));
+        this.maxPollMillis = Math.max(initialPollMillis, TestConfig.getInt("wait.poll.maxMs", 250));
+        this.recheckMillis = Math.max(10, TestConfig.getInt("wait.event.recheckMs", 100));
+        // Each async call must end well before the WebDriver script timeout
+        this.asyncSliceMillis = Math.max(500, Math.min(MAX_ASYNC_SLICE_MILLIS,
+                TimeoutPolicy.get(TimeoutPolicy.Operation.SCRIPT).toMillis() * 2 / 3));
+        this.interactiveReady = LaunchProfile.current().isInteractiveReady();
+    }
+
+    /**
+     * Waits until every condition holds.
+     *
+     * @param timeout    The maximum time to wait.
+     * @param conditions The conditions to wait for.
+     * @return The matched elements, in the order of the conditions.
+     * @throws TimeoutException If the conditions do not all hold before the timeout.
+     */
+    public List<WebElement> waitForAll(Duration timeout, ElementCondition... conditions) {
+        return waitForAll(timeout, null, conditions);
+    }
+
+    /**
+     * Waits until every condition holds, reusing and updating the elements cached for the locators.
+     * The locator cache is only used by the batched and event strategies.
+     *
+     * @param timeout    The maximum time to wait.
+     * @param cache      The locator cache of the calling page object, or null.
+     * @param conditions The conditions to wait for.
+     * @return The matched elements, in the order of the conditions.
+     * @throws TimeoutException If the conditions do not all hold before the timeout.
+     */
+    public List<WebElement> waitForAll(Duration timeout, LocatorCache cache, ElementCondition... conditions) {
+        boolean inBrowser = strategy != Strategy.POLLING && canEvaluateInBrowser(conditions);
+        long start = System.nanoTime();
+        Strategy used = inBrowser ? strategy : Strategy.POLLING;
+        try {
+            if (used == Strategy.POLLING) {
+                return waitWithExpectedConditions(timeout, conditions);
+            }
+            return used == Strategy.EVENT
+                    ? waitForEvents(timeout, cache, conditions)
+                    : waitWithBatchedPolling(timeout, cache, conditions);
+        } finally {
+            stats.get(used).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Waits until a single condition holds.
+     *
+     * @param timeout   The maximum time to wait.
+     * @param condition The condition to wait for.
+     * @return The matched element.
+     */
+    public WebElement waitFor(Duration timeout, ElementCondition condition) {
+        return waitForAll(timeout, condition).get(0);
+    }
+
+    /**
+     * Waits until a single condition holds, reusing and updating the element cached for its locator.
+     *
+     * @param timeout   The maximum time to wait.
+     * @param cache     The locator cache of the calling page object, or null.
+     * @param condition The condition to wait for.
+     * @return The matched element.
+     */
+    public WebElement waitFor(Duration timeout, LocatorCache cache, ElementCondition condition) {
+        return waitForAll(timeout, cache, condition).get(0);
+    }
+
+    /**
+     * Waits until document.readyState is "complete", or at least "interactive" when the launch profile
+     * loads pages with the EAGER or NONE strategy.
+     *
+     * @param timeout The maximum time to wait.
+     * @throws TimeoutException If the document is not ready before the timeout.
+     */
+    public void waitForDocumentReady(Duration timeout) {
+        if (strategy != Strategy.EVENT) {
+            waitFor(timeout).until(webDriver -> {
+                Object state = ((JavascriptExecutor) webDriver).executeScript("return document.readyState");
+                return "complete".equals(state) || (interactiveReady && "interactive".equals(state));
+            });
+            return;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                throw new TimeoutException("Expected condition failed: waiting for document.readyState to be "
+                        + (interactiveReady ? "interactive" : "complete")
+                        + " (tried for " + timeout.toMillis() + " ms with readystatechange events)");
+            }
+            try {
+                Object ready = ((JavascriptExecutor) driver).executeAsyncScript(ASYNC_READY_SCRIPT,
+                        Math.min(remainingMillis, asyncSliceMillis), interactiveReady);
+                if (Boolean.TRUE.equals(ready)) {
+                    return;
+                }
+            } catch (JavascriptException | ScriptTimeoutException e) {
+                // The document was replaced while the listener was installed, install it again
+            }
+        }
+    }
+
+    /**
+     * Polls the conditions with one executeScript call per poll and an adaptive interval.
+     *
+     * @param timeout    The maximum time to wait.
+     * @param cache      The locator cache, or null.
+     * @param conditions The conditions to wait for.
+     * @return The matched elements, in the order of the conditions.
+     */
+    private List<WebElement> waitWithBatchedPolling(Duration timeout, LocatorCache cache, ElementCondition... conditions) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pollMillis = initialPollMillis;
+        int pending = 0;
+        RuntimeException lastError = null;
+        while (true) {
+            try {
+                Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(STATE_SCRIPT,
+                        encode(cache, conditions), cacheUrl(cache));
+                if (Boolean.TRUE.equals(result.get("ready"))) {
+                    return collect(result, cache, conditions);
+                }
+                pending = ((Number) result.get("pending")).intValue();
+                lastError = null;
+            } catch (StaleElementReferenceException e) {
+                lastError = e; // A cached element belongs to a replaced document, resolve every locator again
+                invalidate(cache);
+            } catch (JavascriptException e) {
+                lastError = e; // The document is being replaced, try again on the next poll
+            }
+
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                throw new TimeoutException("Expected condition failed: waiting for " + conditions[pending]
+                        + " (tried for " + timeout.toMillis() + " ms with adaptive polling)", lastError);
+            }
+            sleep(Math.min(pollMillis, remainingMillis));
+            pollMillis = Math.min(maxPollMillis, pollMillis * 2);
+        }
+    }
+
+    /**
+     * Blocks in the browser on a MutationObserver until the conditions hold.
+     * Long waits are split into slices so a navigation, which discards the observer, only costs one re-install.
+     *
+     * @param timeout    The maximum time to wait.
+     * @param cache      The locator cache, or null.
+     * @param conditions The conditions to wait for.
+     * @return The matched elements, in the order of the conditions.
+     */
+    private List<WebElement> waitForEvents(Duration timeout, LocatorCache cache, ElementCondition... conditions) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int pending = 0;
+        RuntimeException lastError = null;
+        while (true) {
+            long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+            if (remainingMillis <= 0) {
+                throw new TimeoutException("Expected condition failed: waiting for " + conditions[pending]
+                        + " (tried for " + timeout.toMillis() + " ms with DOM mutation events)", lastError);
+            }
+            try {
+                Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) driver).executeAsyncScript(ASYNC_STATE_SCRIPT,
+                        encode(cache, conditions), cacheUrl(cache), Math.min(remainingMillis, asyncSliceMillis), recheckMillis);
+                if (Boolean.TRUE.equals(result.get("ready"))) {
+                    return collect(result, cache, conditions);
+                }
+                pending = ((Number) result.get("pending")).intValue();
+                lastError = null;
+            } catch (StaleElementReferenceException e) {
+                lastError = e; // A cached element belongs to a replaced document, resolve every locator again
+                invalidate(cache);
+            } catch (JavascriptException | ScriptTimeoutException e) {
+                lastError = e; // The document was replaced while the observer was installed, install it again
+                sleep(Math.min(initialPollMillis, Math.max(1, remainingMillis)));
+            }
+        }
+    }
+
+    /**
+     * Extracts the matched elements from a script result and records them in the locator cache.
+     *
+     * @param result     The result returned by the script.
+     * @param cache      The locator cache, or null.
+     * @param conditions The conditions that were waited for.
+     * @return The matched elements, in the order of the conditions.
+     */
+    private List<WebElement> collect(Map<?, ?> result, LocatorCache cache, ElementCondition... conditions) {
+        List<WebElement> elements = castElements((List<?>) result.get("elements"));
+        if (cache != null) {
+            List<Boolean> fromCache = new ArrayList<>();
+            for (Object hit : (List<?>) result.get("cached")) {
+                fromCache.add(Boolean.TRUE.equals(hit));
+            }
+            cache.update((String) result.get("url"), conditions, elements, fromCache);
+        }
+        return elements;
+    }
+
+    private static String cacheUrl(LocatorCache cache) {
+        return cache == null ? null : cache.getUrl();
+    }
+
+    private static void invalidate(LocatorCache cache) {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Checks whether every locator can be resolved by the in-browser scripts.
+     *
+     * @param conditions The conditions to check.
+     * @return True if all locators are supported, otherwise false.
+     */
+    private static boolean canEvaluateInBrowser(ElementCondition... conditions) {
+        for (ElementCondition condition : conditions) {
+            if (!(condition.getLocator() instanceof By.Remotable)
+                    || !SUPPORTED_STRATEGIES.contains(((By.Remotable) condition.getLocator()).getRemoteParameters().using())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converts the conditions into the argument format of the in-browser scripts.
+     *
+     * @param cache      The locator cache providing previously resolved elements, or null.
+     * @param conditions The conditions to convert.
+     * @return The encoded conditions.
+     */
+    private List<List<Object>> encode(LocatorCache cache, ElementCondition... conditions) {
+        List<List<Object>> encoded = new ArrayList<>();
+        for (ElementCondition condition : conditions) {
+            By.Remotable.Parameters parameters = ((By.Remotable) condition.getLocator()).getRemoteParameters();
+            encoded.add(Arrays.asList(parameters.using(), String.valueOf(parameters.value()),
+                    condition.getState().name(), condition.getExpectedText(),
+                    cache == null ? null : cache.get(condition.getLocator())));
+        }
+        return encoded;
+    }
+
+    /**
+     * Waits with one WebDriverWait per condition. Used by the polling strategy and as a fallback
+     * for locators the scripts cannot resolve (e.g. ByChained).
+     *
+     * @param timeout    The maximum time to wait for each condition.
+     * @param conditions The conditions to wait for.
+     * @return The matched elements, in the order of the conditions.
+     */
+    private List<WebElement> waitWithExpectedConditions(Duration timeout, ElementCondition... conditions) {
+        WebDriverWait wait = waitFor(timeout);
+        List<WebElement> elements = new ArrayList<>();
+        for (ElementCondition condition : conditions) {
+            elements.add(wait.until(expectedCondition(condition)));
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the reusable WebDriverWait for a timeout.
+     *
+     * @param timeout The timeout of the wait.
+     * @return The wait object.
+     */
+    private WebDriverWait waitFor(Duration timeout) {
+        return waits.computeIfAbsent(timeout, key -> new WebDriverWait(driver, key));
+    }
+
+    /**
+     * Maps a condition to the equivalent Selenium ExpectedCondition.
+     *
+     * @param condition The condition to map.
+     * @return The ExpectedCondition returning the matched element.
+     */
+    private ExpectedCondition<WebElement> expectedCondition(ElementCondition condition) {
+        By locator = condition.getLocator();
+        switch (condition.getState()) {
+            case PRESENT:
+                return ExpectedConditions.presenceOfElementLocated(locator);
+            case CLICKABLE:
+                return ExpectedConditions.elementToBeClickable(locator);
+            case TEXT_EQUALS:
+                return webDriver -> {
+                    WebElement element = ExpectedConditions.visibilityOfElementLocated(locator).apply(webDriver);
+                    return element != null && condition.getExpectedText().equals(element.getText().trim()) ? element : null;
+                };
+            default:
+                return ExpectedConditions.visibilityOfElementLocated(locator);
+        }
+    }
+
+    /**
+     * Builds a summary of the wait latency recorded for each strategy used in this JVM.
+     *
+     * @return One summary line per strategy that handled at least one wait.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        stats.forEach((strategy, waitStats) -> {
+            long count = waitStats.count.get();
+            if (count > 0) {
+                summaries.add(String.format("Element waits (%s): count=%d, avg=%.1fms, max=%.1fms",
+                        strategy.name().toLowerCase(), count,
+                        waitStats.totalNanos.get() / 1_000_000.0 / count, waitStats.maxNanos.get() / 1_000_000.0));
+            }
+        });
+        return summaries;
+    }
+
+    private static List<WebElement> castElements(List<?> values) {
+        List<WebElement> elements = new ArrayList<>();
+        for (Object value : values) {
+            elements.add((WebElement) value);
+        }
+        return elements;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for element conditions", e);
+        }
+    }
+
+    /**
+     * Loads a JavaScript resource from the test classpath.
+     *
+     * @param path The classpath location of the script.
+     * @return The script source.
+     */
+    static String loadScript(String path) {
+        try (InputStream input = ElementStateEngine.class.getClassLoader().getResourceAsStream(path)) {
+            if (input == null) {
+                throw new IllegalStateException("Script " + path + " not found on the classpath");
+            }
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read script " + path, e);
+        }
+    }
+
+    /**
+     * Count, total and maximum wait time of one strategy.
+     */
+    private static class WaitStats {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
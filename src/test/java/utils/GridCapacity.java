@@ -0,0 +1,218 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session slots of the Selenium Grid that remote sessions are created on (driver.mode=remote).
+ * Before a session is requested, {@link #acquire(String)} reads the free slots per browser from the Grid's
+ * /status endpoint and waits until one is free, instead of leaving the request in the Grid's new session queue,
+ * where it times out when the queue is long. Requests sent but not yet visible in the status are counted too,
+ * so threads never ask for more sessions than there are free slots. Other clients of the same Grid, e.g. other
+ * shards, are accounted for by the status itself.
+ * <p>
+ * The status is queried at most every grid.statusIntervalMs. If it cannot be read, requests go to the Grid unthrottled.
+ * The time spent waiting for a slot is recorded per browser and printed at the end of the suite.
+ */
+public class GridCapacity {
+
+    // Logger for logging messages related to Grid capacity
+    private static final Logger logger = LoggerFactory.getLogger(GridCapacity.class);
+    private static final Gson gson = new Gson();
+    private static final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    // Free and total slots per browser name (as in capabilities, e.g. "MicrosoftEdge") at the last status query
+    private static Map<String, Integer> freeSlots = new HashMap<>();
+    private static Map<String, Integer> totalSlots = new HashMap<>();
+    // When the status was read (System.nanoTime), or 0 if it has to be read again
+    private static long statusTime;
+    // Session requests sent to the Grid that the last status may not show yet, per browser name
+    private static final Map<String, Integer> inFlight = new HashMap<>();
+    // Status endpoint of the last query, for the summary
+    private static volatile String statusUrl;
+
+    // Metrics
+    private static final Map<String, LatencyHistogram> queueWaits = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> throttled = new ConcurrentHashMap<>();
+    private static final AtomicLong statusQueries = new AtomicLong();
+    private static final AtomicLong statusFailures = new AtomicLong();
+
+    /**
+     * Returns whether sessions are created on a Selenium Grid rather than by local drivers.
+     *
+     * @return True if driver.mode is remote.
+     */
+    public static boolean isEnabled() {
+        return "remote".equalsIgnoreCase(TestConfig.get("driver.mode", "local"));
+    }
+
+    /**
+     * Returns the URL of the Grid: a standalone server started by this JVM with grid.standalone=true,
+     * otherwise grid.url.
+     *
+     * @return The Grid URL, without a trailing slash.
+     */
+    public static String gridUrl() {
+        String url = GridServer.isEnabled() ? GridServer.start() : TestConfig.get("grid.url", "http://localhost:4444");
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Waits until the Grid has a free slot for a browser and reserves it for a session request.
+     * Call {@link #release(String)} once the request has completed, whether it succeeded or not.
+     *
+     * @param browserName The browser name of the capabilities, e.g. "chrome" or "MicrosoftEdge".
+     * @throws SessionNotCreatedException If the Grid has no slots for the browser, or none becomes free
+     *                                    within grid.slotTimeoutSeconds.
+     */
+    public static void acquire(String browserName) {
+        if (!TestConfig.getBoolean("grid.throttle", true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long timeoutSeconds = TestConfig.getInt("grid.slotTimeoutSeconds", 300);
+        long deadline = start + Duration.ofSeconds(timeoutSeconds).toNanos();
+        long intervalMs = Math.max(50, TestConfig.getInt("grid.statusIntervalMs", 1000));
+        boolean waited = false;
+        synchronized (GridCapacity.class) {
+            while (true) {
+                if (statusTime == 0 || System.nanoTime() - statusTime > intervalMs * 1_000_000) {
+                    if (!readStatus()) {
+                        break; // Status unknown: leave the request to the Grid's own queue
+                    }
+                }
+                if (totalSlots.getOrDefault(browserName, 0) == 0) {
+                    throw new SessionNotCreatedException("The Grid at " + gridUrl() + " has no slots for " + browserName
+                            + "; its slots are for " + totalSlots.keySet());
+                }
+                if (freeSlots.getOrDefault(browserName, 0) - inFlight.getOrDefault(browserName, 0) > 0) {
+                    inFlight.merge(browserName, 1, Integer::sum);
+                    break;
+                }
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMs <= 0) {
+                    throw new SessionNotCreatedException("No " + browserName + " slot of the Grid at " + gridUrl()
+                            + " became free within " + timeoutSeconds + "s (grid.slotTimeoutSeconds)");
+                }
+                waited = true;
+                try {
+                    GridCapacity.class.wait(Math.min(intervalMs, remainingMs));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SessionNotCreatedException("Interrupted while waiting for a " + browserName + " slot");
+                }
+            }
+        }
+        queueWaits.computeIfAbsent(browserName, key -> new LatencyHistogram()).recordNanos(System.nanoTime() - start);
+        if (waited) {
+            throttled.computeIfAbsent(browserName, key -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Completes a session request reserved by {@link #acquire(String)}. The new session, if any, now shows in
+     * the status, so the next request reads it again.
+     *
+     * @param browserName The browser name of the capabilities.
+     */
+    public static synchronized void release(String browserName) {
+        inFlight.computeIfPresent(browserName, (key, count) -> count > 1 ? count - 1 : null);
+        statusTime = 0;
+        GridCapacity.class.notifyAll();
+    }
+
+    /**
+     * Reads the slots of every node that is up from the Grid status. A node offers the free slots of a browser
+     * up to its free session count (max-sessions less the sessions it runs).
+     *
+     * @return True if the status was read.
+     */
+    private static boolean readStatus() {
+        statusQueries.incrementAndGet();
+        String url = gridUrl() + "/status";
+        statusUrl = url;
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(10)).GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            Map<String, Integer> free = new HashMap<>();
+            Map<String, Integer> total = new HashMap<>();
+            JsonObject value = gson.fromJson(response.body(), JsonObject.class).getAsJsonObject("value");
+            if (value.has("nodes")) {
+                for (JsonElement element : value.getAsJsonArray("nodes")) {
+                    JsonObject node = element.getAsJsonObject();
+                    if (!"UP".equalsIgnoreCase(text(node, "availability")) || !node.has("slots")) {
+                        continue;
+                    }
+                    Map<String, Integer> nodeFree = new HashMap<>();
+                    int busy = 0;
+                    for (JsonElement slotElement : node.getAsJsonArray("slots")) {
+                        JsonObject slot = slotElement.getAsJsonObject();
+                        String browserName = text(slot.getAsJsonObject("stereotype"), "browserName");
+                        total.merge(browserName, 1, Integer::sum);
+                        if (slot.has("session") && !slot.get("session").isJsonNull()) {
+                            busy++;
+                        } else {
+                            nodeFree.merge(browserName, 1, Integer::sum);
+                        }
+                    }
+                    int sessionsLeft = node.has("maxSessions") ? node.get("maxSessions").getAsInt() - busy : Integer.MAX_VALUE;
+                    nodeFree.forEach((browserName, slots) -> free.merge(browserName, Math.max(0, Math.min(slots, sessionsLeft)), Integer::sum));
+                }
+            }
+            freeSlots = free;
+            totalSlots = total;
+            statusTime = System.nanoTime();
+            return true;
+        } catch (Exception e) {
+            if (statusFailures.incrementAndGet() == 1) {
+                logger.warn("Failed to read the Grid status from {}, requesting sessions without throttling: {}", url, e.toString());
+            }
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+    }
+
+    private static String text(JsonObject object, String name) {
+        return object != null && object.has(name) && !object.get(name).isJsonNull() ? object.get(name).getAsString() : "";
+    }
+
+    /**
+     * Builds a summary of the time session requests waited for a free Grid slot, per browser.
+     *
+     * @return One summary line per browser; empty if no remote session was requested.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        new TreeMap<>(queueWaits).forEach((browserName, histogram) -> summaries.add(String.format(
+                "Grid slots (%s): requests=%d, throttled=%d, queue wait p50=%.1fms, p95=%.1fms, max=%.1fms, slots at last status=%d free of %d",
+                browserName, histogram.getCount(), throttled.getOrDefault(browserName, new AtomicLong()).get(),
+                histogram.getValueAtPercentile(50) / 1_000.0, histogram.getValueAtPercentile(95) / 1_000.0,
+                histogram.getMaxMicros() / 1_000.0, freeSlots.getOrDefault(browserName, 0), totalSlots.getOrDefault(browserName, 0))));
+        if (statusQueries.get() > 0) {
+            summaries.add(String.format("Grid status (%s): queries=%d, failures=%d", statusUrl, statusQueries.get(), statusFailures.get()));
+        }
+        return summaries;
+    }
+}
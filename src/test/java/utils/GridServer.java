@@ -0,0 +1,154 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selenium Grid in a single process for remote runs on this machine (driver.mode=remote, grid.standalone=true):
+ * starts {@code java -jar selenium-server.jar standalone} from grid.standalone.jar on a free port on first use, and
+ * {@link #stop()} shuts it down when the suite finishes. The server starts its browsers with the driver binaries
+ * {@link DriverBinaryResolver} finds for this JVM, so it needs no network access either. Its output goes to
+ * logs/selenium-server.log.
+ */
+public class GridServer {
+
+    // Logger for logging messages related to the standalone server
+    private static final Logger logger = LoggerFactory.getLogger(GridServer.class);
+    private static final Gson gson = new Gson();
+
+    private static Process process;
+    private static String url;
+
+    static {
+        // The server must not outlive the tests, e.g. when the run is interrupted
+        Runtime.getRuntime().addShutdownHook(new Thread(GridServer::stop, "grid-server-shutdown"));
+    }
+
+    /**
+     * Returns whether remote sessions are created on a standalone server started by this JVM.
+     *
+     * @return True if driver.mode is remote and grid.standalone is true.
+     */
+    public static boolean isEnabled() {
+        return GridCapacity.isEnabled() && TestConfig.getBoolean("grid.standalone", false);
+    }
+
+    /**
+     * Starts the server if it is not running yet and waits until it accepts sessions.
+     *
+     * @return The URL of the server.
+     * @throws IllegalStateException If the server jar is missing or the server does not become ready within
+     *                               grid.standalone.startTimeoutSeconds.
+     */
+    public static synchronized String start() {
+        if (process != null) {
+            return url;
+        }
+        Path jar = Path.of(TestConfig.get("grid.standalone.jar", "drivers/selenium-server.jar"));
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("grid.standalone needs the Selenium Server jar at " + jar.toAbsolutePath()
+                    + " (selenium-server-<version>.jar from the Selenium releases, matching the selenium-java version)");
+        }
+        try {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+            for (String browser : TestConfig.get("grid.standalone.browsers", "chrome,firefox,edge").split(",")) {
+                try {
+                    Path driver = DriverBinaryResolver.resolve(browser.trim());
+                    command.add("-D" + DriverBinaryResolver.property(browser.trim()) + "=" + driver);
+                } catch (RuntimeException e) {
+                    logger.warn("No {} driver for the standalone server, it will not offer {} slots: {}", browser.trim(),
+                            browser.trim(), e.getMessage());
+                }
+            }
+            command.addAll(List.of("-jar", jar.toString(), "standalone", "--port", String.valueOf(port),
+                    "--max-sessions", String.valueOf(TestConfig.getInt("grid.standalone.maxSessions",
+                            Runtime.getRuntime().availableProcessors())),
+                    "--override-max-sessions", "true"));
+            Path log = Path.of("logs", "selenium-server.log");
+            Files.createDirectories(log.getParent());
+            process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+            url = "http://localhost:" + port;
+            awaitReady(Duration.ofSeconds(TestConfig.getInt("grid.standalone.startTimeoutSeconds", 60)));
+            logger.info("Selenium standalone server ready at {}, output in {}", url, log);
+            return url;
+        } catch (IOException | RuntimeException e) {
+            stop();
+            throw e instanceof IllegalStateException ? (IllegalStateException) e
+                    : new IllegalStateException("Failed to start the Selenium standalone server: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Polls the status endpoint until the server reports that it is ready.
+     */
+    private static void awaitReady(Duration timeout) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("The Selenium standalone server exited with status " + process.exitValue()
+                        + "; see logs/selenium-server.log");
+            }
+            try {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + "/status"))
+                        .timeout(Duration.ofSeconds(2)).GET().build(), HttpResponse.BodyHandlers.ofString());
+                JsonObject value = gson.fromJson(response.body(), JsonObject.class).getAsJsonObject("value");
+                if (response.statusCode() == 200 && value.has("ready") && value.get("ready").getAsBoolean()) {
+                    return;
+                }
+            } catch (IOException | RuntimeException e) {
+                // Not listening yet
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the Selenium standalone server", e);
+            }
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the Selenium standalone server", e);
+            }
+        }
+        throw new IllegalStateException("The Selenium standalone server at " + url + " was not ready within "
+                + timeout.getSeconds() + "s (grid.standalone.startTimeoutSeconds)");
+    }
+
+    /**
+     * Stops the server, if this JVM started one. Its sessions end with it.
+     */
+    public static synchronized void stop() {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        process = null;
+        url = null;
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.util.List;
+
+/**
+ * WebDriverListener that reports every locator a test resolves to {@link TestImpact}: those of findElement(s),
+ * and those of the conditions the {@link ElementStateEngine} scripts evaluate.
+ * Drivers are decorated with it when impact.mode is record or select.
+ */
+public class ImpactListener implements WebDriverListener {
+
+    /**
+     * Wraps a driver so the locators it resolves are recorded for the test on the calling thread.
+     *
+     * @param driver The driver to wrap.
+     * @return The decorated driver.
+     */
+    public static WebDriver decorate(WebDriver driver) {
+        return new EventFiringDecorator<WebDriver>(new ImpactListener()).decorate(driver);
+    }
+
+    @Override
+    public void beforeFindElement(WebDriver driver, By locator) {
+        TestImpact.useLocator(LatencyListener.describe(locator));
+    }
+
+    @Override
+    public void beforeFindElements(WebDriver driver, By locator) {
+        TestImpact.useLocator(LatencyListener.describe(locator));
+    }
+
+    @Override
+    public void beforeFindElement(WebElement element, By locator) {
+        TestImpact.useLocator(LatencyListener.describe(locator));
+    }
+
+    @Override
+    public void beforeFindElements(WebElement element, By locator) {
+        TestImpact.useLocator(LatencyListener.describe(locator));
+    }
+
+    @Override
+    public void beforeExecuteScript(WebDriver driver, String script, Object[] args) {
+        useConditionLocators(args);
+    }
+
+    @Override
+    public void beforeExecuteAsyncScript(WebDriver driver, String script, Object[] args) {
+        useConditionLocators(args);
+    }
+
+    /**
+     * Records the locators of an ElementStateEngine script, whose first argument lists the [using, value, ...] of each condition.
+     */
+    private static void useConditionLocators(Object[] args) {
+        if (args == null || args.length == 0 || !(args[0] instanceof List)) {
+            return;
+        }
+        for (Object condition : (List<?>) args[0]) {
+            if (condition instanceof List && ((List<?>) condition).size() > 1) {
+                TestImpact.useLocator(((List<?>) condition).get(0) + ": " + ((List<?>) condition).get(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package utils;
+
+import org.testng.IMethodSelector;
+import org.testng.IMethodSelectorContext;
+import org.testng.ITestNGMethod;
+
+import java.util.List;
+
+/**
+ * TestNG method selector that leaves out the tests {@link TestImpact} carries over, with impact.mode=select.
+ * Registered in testng.xml with a priority below TestNG's own selector, so a deselected test is excluded outright
+ * and every other test is left to the include/exclude rules of testng.xml.
+ */
+public class ImpactSelector implements IMethodSelector {
+
+    @Override
+    public boolean includeMethod(IMethodSelectorContext context, ITestNGMethod method, boolean isTestMethod) {
+        if (isTestMethod && !TestImpact.isSelected(method)) {
+            context.setStopped(true);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void setTestMethods(List<ITestNGMethod> testMethods) {
+    }
+}
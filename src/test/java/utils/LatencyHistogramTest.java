@@ -0,0 +1,123 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link LatencyHistogram}; they run without a browser.
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * An empty histogram reports zero for every percentile instead of failing.
+     */
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getCount(), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 0);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 0);
+        Assert.assertEquals(histogram.getMaxMicros(), 0);
+    }
+
+    /**
+     * Values below 32 µs have a bucket each, so their percentiles are exact.
+     */
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 31; micros++) {
+            histogram.recordNanos(micros * 1_000);
+        }
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 16);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 31);
+        Assert.assertEquals(histogram.getValueAtPercentile(0), 1);
+    }
+
+    /**
+     * Larger values are reported within one sub-bucket (1/32) above the recorded value, and never above the maximum.
+     */
+    @Test
+    public void largeValuesAreWithinOneSubBucket() {
+        long[] values = {33, 100, 1_023, 1_025, 65_537, 1_000_000, 123_456_789};
+        for (long value : values) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.recordNanos(value * 1_000);
+            histogram.recordNanos(value * 4_000); // A larger value keeps the maximum from capping the bucket bound
+            long reported = histogram.getValueAtPercentile(50);
+            Assert.assertTrue(reported >= value && reported <= value + value / 32,
+                    "p50 of " + value + " µs reported as " + reported);
+        }
+    }
+
+    /**
+     * The reported percentile is capped at the largest recorded value.
+     */
+    @Test
+    public void percentileIsCappedAtMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(1_000_001_000L);
+        Assert.assertEquals(histogram.getValueAtPercentile(99), 1_000_001);
+        Assert.assertEquals(histogram.getMaxMicros(), 1_000_001);
+    }
+
+    /**
+     * Percentiles pick the bucket that holds the requested rank.
+     */
+    @Test
+    public void percentilesFollowTheRank() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.recordNanos(10_000);
+        }
+        histogram.recordNanos(5_000_000);
+        histogram.recordNanos(9_000_000);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 10);
+        Assert.assertEquals(histogram.getValueAtPercentile(98), 10);
+        long p99 = histogram.getValueAtPercentile(99);
+        Assert.assertTrue(p99 >= 5_000 && p99 <= 5_000 + 5_000 / 32, "p99 reported as " + p99);
+        Assert.assertEquals(histogram.getValueAtPercentile(100), 9_000);
+    }
+
+    /**
+     * Negative durations, e.g. from a clock adjustment, count as zero, and values beyond the range do not fail.
+     */
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5_000);
+        histogram.recordNanos(Long.MAX_VALUE);
+        Assert.assertEquals(histogram.getCount(), 2);
+        Assert.assertEquals(histogram.getValueAtPercentile(50), 0);
+        Assert.assertEquals(histogram.getMaxMicros(), Long.MAX_VALUE / 1_000);
+        Assert.assertTrue(histogram.getValueAtPercentile(100) <= histogram.getMaxMicros());
+    }
+
+    /**
+     * Concurrent recording loses no values.
+     *
+     * @throws InterruptedException If interrupted while waiting for the recording threads.
+     */
+    @Test
+    public void concurrentRecordingCountsEveryValue() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 10_000; i++) {
+                    histogram.recordNanos(i * 1_000L);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(histogram.getCount(), 40_000);
+        Assert.assertEquals(histogram.getMaxMicros(), 10_000);
+    }
+}
@@ -0,0 +1,193 @@
+package utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebDriverListener that records the latency of every WebDriver and WebElement command in a
+ * {@link LatencyHistogram}, per command (get, findElement, click, executeScript, ...) and per command and locator.
+ * Enabled with metrics.latency=true; the percentiles are printed and added to the report at the end of the suite.
+ */
+public class LatencyListener implements WebDriverListener {
+
+    // Histograms of every decorated driver in this JVM
+    private static final Map<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> byLocator = new ConcurrentHashMap<>();
+
+    // {start, end} times of the commands in progress on the current thread; a stack, since commands can nest
+    private final ThreadLocal<Deque<long[]>> timings = ThreadLocal.withInitial(ArrayDeque::new);
+    // Locator each element of this driver was found with, so element commands can be attributed to it
+    private final Map<WebElement, String> locators = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Wraps a driver so every command it executes is timed.
+     *
+     * @param driver The driver to wrap.
+     * @return The decorated driver.
+     */
+    public static WebDriver decorate(WebDriver driver) {
+        LatencyListener listener = new LatencyListener();
+        return new EventFiringDecorator<WebDriver>(listener) {
+            @Override
+            public Decorated<WebElement> createDecorated(WebElement original) {
+                // The decorator generates a proxy class for every element a command returns, which takes milliseconds;
+                // the command is timed up to the first of these so the histograms show the driver's latency, not the proxy's
+                listener.commandReturned();
+                return super.createDecorated(original);
+            }
+        }.decorate(driver);
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        timings.get().push(new long[]{System.nanoTime(), 0});
+    }
+
+    /**
+     * Marks the end of the command in progress on the current thread, if not marked yet.
+     */
+    private void commandReturned() {
+        long[] timing = timings.get().peek();
+        if (timing != null && timing[1] == 0) {
+            timing[1] = System.nanoTime();
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        long[] timing = timings.get().poll();
+        if (timing == null) {
+            return;
+        }
+        long nanos = (timing[1] != 0 ? timing[1] : System.nanoTime()) - timing[0];
+        String command = method.getName();
+        byCommand.computeIfAbsent(command, key -> new LatencyHistogram()).recordNanos(nanos);
+        String locator = locatorOf(target, args);
+        if (locator != null) {
+            byLocator.computeIfAbsent(command + " " + locator, key -> new LatencyHistogram()).recordNanos(nanos);
+        }
+        rememberLocators(command, args, result, locator);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        long[] timing = timings.get().poll();
+        if (timing != null) {
+            // Failed commands (e.g. NoSuchElementException) are timed separately so they do not skew the successful ones
+            byCommand.computeIfAbsent(method.getName() + " (failed)", key -> new LatencyHistogram())
+                    .recordNanos(System.nanoTime() - timing[0]);
+        }
+    }
+
+    /**
+     * Returns the locator a command refers to: the By argument of a find command, or the locator
+     * the target element was found with.
+     */
+    private String locatorOf(Object target, Object[] args) {
+        if (args != null && args.length > 0 && args[0] instanceof By) {
+            return describe((By) args[0]);
+        }
+        return target instanceof WebElement ? locators.get(unwrap(target)) : null;
+    }
+
+    /**
+     * Remembers the locators of the elements a command returned: those of findElement(s), and those
+     * resolved by the ElementStateEngine scripts, whose first argument lists the [using, value, ...] of each condition.
+     */
+    private void rememberLocators(String command, Object[] args, Object result, String locator) {
+        if (locator != null && command.startsWith("findElement")) {
+            if (result instanceof WebElement) {
+                locators.put(unwrap(result), locator);
+            } else if (result instanceof List) {
+                for (Object element : (List<?>) result) {
+                    locators.put(unwrap(element), locator);
+                }
+            }
+        } else if (command.startsWith("execute") && result instanceof Map && args != null && args.length > 1
+                && args[1] instanceof Object[] && ((Object[]) args[1]).length > 0 && ((Object[]) args[1])[0] instanceof List) {
+            Object elements = ((Map<?, ?>) result).get("elements");
+            List<?> conditions = (List<?>) ((Object[]) args[1])[0];
+            if (elements instanceof List && ((List<?>) elements).size() == conditions.size()) {
+                for (int i = 0; i < conditions.size(); i++) {
+                    if (conditions.get(i) instanceof List && ((List<?>) conditions.get(i)).size() > 1) {
+                        List<?> condition = (List<?>) conditions.get(i);
+                        locators.put(unwrap(((List<?>) elements).get(i)), condition.get(0) + ": " + condition.get(1));
+                    }
+                }
+            }
+        }
+    }
+
+    private static WebElement unwrap(Object element) {
+        return element instanceof WrapsElement ? ((WrapsElement) element).getWrappedElement() : (WebElement) element;
+    }
+
+    /**
+     * Describes a locator in its W3C form, so By.id("x") and a CSS selector "#x" are reported alike.
+     */
+    static String describe(By locator) {
+        if (locator instanceof By.Remotable) {
+            By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+            return parameters.using() + ": " + parameters.value();
+        }
+        return locator.toString();
+    }
+
+    /**
+     * Builds the percentile table of every command and, below it, of every command and locator.
+     *
+     * @return The header row followed by one row per command, in milliseconds; empty if nothing was recorded.
+     */
+    public static List<String[]> percentileTable() {
+        List<String[]> rows = new ArrayList<>();
+        if (byCommand.isEmpty()) {
+            return rows;
+        }
+        rows.add(new String[]{"Command", "Count", "p50 (ms)", "p95 (ms)", "p99 (ms)", "Max (ms)"});
+        new TreeMap<>(byCommand).forEach((name, histogram) -> rows.add(row(name, histogram)));
+        new TreeMap<>(byLocator).forEach((name, histogram) -> rows.add(row(name, histogram)));
+        return rows;
+    }
+
+    /**
+     * Builds a summary of the latency percentiles per command and per locator.
+     *
+     * @return One summary line per command and per command and locator.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        List<String[]> rows = percentileTable();
+        for (String[] row : rows.subList(Math.min(1, rows.size()), rows.size())) {
+            summaries.add(String.format("Latency (%s): count=%s, p50=%sms, p95=%sms, p99=%sms, max=%sms",
+                    row[0], row[1], row[2], row[3], row[4], row[5]));
+        }
+        return summaries;
+    }
+
+    private static String[] row(String name, LatencyHistogram histogram) {
+        return new String[]{name, String.valueOf(histogram.getCount()),
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getMaxMicros())};
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.2f", micros / 1_000.0);
+    }
+}
@@ -0,0 +1,166 @@
+package utils;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Named browser launch profile (launch.profile in test-config.properties, settings under launch.&lt;profile&gt;.*):
+ * headless mode, page load strategy, window size, private mode and extra command-line flags.
+ * The shipped profiles are fast (EAGER page load, fixed window, background work disabled), faithful
+ * (NORMAL page load, no extra flags) and debug (visible, maximized browser).
+ */
+public class LaunchProfile {
+
+    // Profiles read once per JVM, keyed by name
+    private static final Map<String, LaunchProfile> profiles = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final boolean headless;
+    private final PageLoadStrategy pageLoadStrategy;
+    // Fixed window size, or null to maximize the window
+    private final Dimension windowSize;
+    private final boolean privateMode;
+    private final List<String> chromiumArgs;
+    private final List<String> firefoxArgs;
+
+    private LaunchProfile(String name) {
+        String prefix = "launch." + name + ".";
+        this.name = name;
+        this.headless = TestConfig.getBoolean(prefix + "headless", true);
+        this.pageLoadStrategy = PageLoadStrategy.fromString(TestConfig.get(prefix + "pageLoadStrategy", "normal").toLowerCase());
+        if (pageLoadStrategy == null) {
+            throw new IllegalArgumentException("Unknown page load strategy for launch profile " + name + ": "
+                    + TestConfig.get(prefix + "pageLoadStrategy", ""));
+        }
+        this.windowSize = parseWindowSize(TestConfig.get(prefix + "windowSize", "1920x1080"));
+        this.privateMode = TestConfig.getBoolean(prefix + "private", true);
+        this.chromiumArgs = split(TestConfig.get(prefix + "chromium.args", ""));
+        this.firefoxArgs = split(TestConfig.get(prefix + "firefox.args", ""));
+    }
+
+    /**
+     * Returns the profile selected with launch.profile.
+     *
+     * @return The current launch profile.
+     */
+    public static LaunchProfile current() {
+        return named(TestConfig.get("launch.profile", "fast"));
+    }
+
+    /**
+     * Returns a profile by name.
+     *
+     * @param name The profile name, e.g. "fast".
+     * @return The launch profile.
+     */
+    public static LaunchProfile named(String name) {
+        return profiles.computeIfAbsent(name.toLowerCase(), LaunchProfile::new);
+    }
+
+    /**
+     * Applies the profile to Chrome or Edge options.
+     *
+     * @param options The browser options.
+     * @param <T>     The options type.
+     * @return The same options, for chaining.
+     */
+    public <T extends ChromiumOptions<?>> T applyTo(T options) {
+        options.setPageLoadStrategy(pageLoadStrategy);
+        if (headless) {
+            options.addArguments("--headless=new"); // The old headless mode is a separate, diverging browser
+        }
+        if (windowSize != null) {
+            options.addArguments("--window-size=" + windowSize.getWidth() + "," + windowSize.getHeight());
+        }
+        if (privateMode) {
+            options.addArguments(options instanceof EdgeOptions ? "--inprivate" : "--incognito");
+        }
+        options.addArguments(chromiumArgs);
+        return options;
+    }
+
+    /**
+     * Applies the profile to Firefox options.
+     *
+     * @param options The browser options.
+     * @return The same options, for chaining.
+     */
+    public FirefoxOptions applyTo(FirefoxOptions options) {
+        options.setPageLoadStrategy(pageLoadStrategy);
+        if (headless) {
+            options.addArguments("-headless");
+        }
+        if (windowSize != null) {
+            options.addArguments("--width=" + windowSize.getWidth(), "--height=" + windowSize.getHeight());
+        }
+        if (privateMode) {
+            options.addArguments("-private");
+        }
+        options.addArguments(firefoxArgs);
+        return options;
+    }
+
+    /**
+     * Sizes the window of a new session. Fixed sizes are passed as launch flags, so only profiles
+     * that maximize a visible window need a command.
+     *
+     * @param driver The new driver.
+     */
+    public void sizeWindow(WebDriver driver) {
+        if (windowSize == null && !headless) {
+            driver.manage().window().maximize();
+        }
+    }
+
+    /**
+     * Returns whether a document in the "interactive" state counts as loaded. With the EAGER and NONE
+     * strategies, driver.get() returns before images and stylesheets have loaded, and waiting for "complete"
+     * afterwards would give back what the strategy saves; element waits cover the rest.
+     *
+     * @return True if "interactive" is enough, false if the document must be "complete".
+     */
+    public boolean isInteractiveReady() {
+        return pageLoadStrategy != PageLoadStrategy.NORMAL;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PageLoadStrategy getPageLoadStrategy() {
+        return pageLoadStrategy;
+    }
+
+    /**
+     * Parses a window size such as "1920x1080"; "maximized" yields null.
+     */
+    private static Dimension parseWindowSize(String value) {
+        if ("maximized".equalsIgnoreCase(value)) {
+            return null;
+        }
+        String[] parts = value.toLowerCase().split("[x,]");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid window size, expected <width>x<height> or maximized: " + value);
+        }
+        return new Dimension(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+
+    private static List<String> split(String value) {
+        List<String> args = new ArrayList<>();
+        for (String arg : value.split(",")) {
+            if (!arg.isBlank()) {
+                args.add(arg.trim());
+            }
+        }
+        return args;
+    }
+}
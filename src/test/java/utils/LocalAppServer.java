@@ -0,0 +1,156 @@
+package utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the application under test (app.mode=local). Serves site/ on the test classpath:
+ * hand-written pages imitating the saucedemo login, inventory, cart and checkout pages, with their behaviour
+ * in static/js/app.js, from a JDK HTTP server on a free loopback port. The server is shared by every session of the JVM:
+ * it starts on first use, files are read once and served from memory, and {@link #stop()} shuts it down
+ * when the suite finishes.
+ */
+public class LocalAppServer {
+
+    static {
+        // Without TCP_NODELAY, Nagle's algorithm and delayed ACKs add ~40 ms to every small response on loopback
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    // Logger for logging messages related to the local application server
+    private static final Logger logger = LoggerFactory.getLogger(LocalAppServer.class);
+    // Content types by file extension
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "html", "text/html; charset=utf-8",
+            "css", "text/css; charset=utf-8",
+            "js", "text/javascript; charset=utf-8",
+            "json", "application/json",
+            "svg", "image/svg+xml",
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "ico", "image/x-icon");
+
+    // Files of site/, read from the classpath on first request; misses are cached too
+    private static final Map<String, Optional<byte[]>> files = new ConcurrentHashMap<>();
+    private static HttpServer server;
+    private static ExecutorService executor;
+
+    /**
+     * Returns whether tests run against the local stand-in (app.mode=local) rather than the remote application,
+     * which is the default.
+     *
+     * @return True in local mode.
+     */
+    public static boolean isEnabled() {
+        return "local".equalsIgnoreCase(TestConfig.get("app.mode", "remote"));
+    }
+
+    /**
+     * Resolves the base URL tests navigate to: the local server in local mode, the configured URL otherwise.
+     *
+     * @param configuredUrl The base URL of the remote application, e.g. the baseUrl parameter of testng.xml.
+     * @return The base URL.
+     */
+    public static String resolveBaseUrl(String configuredUrl) {
+        return isEnabled() ? start() : configuredUrl;
+    }
+
+    /**
+     * Starts the server if it is not running yet.
+     *
+     * @return The base URL of the server, ending with a slash.
+     * @throws IllegalStateException If the server cannot be bound.
+     */
+    public static synchronized String start() {
+        if (server == null) {
+            try {
+                HttpServer created = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+                created.createContext("/", LocalAppServer::handle);
+                executor = Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "local-app");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                created.setExecutor(executor);
+                created.start();
+                server = created;
+                logger.info("Serving the local application stand-in at {}", baseUrl());
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start the local application server", e);
+            }
+        }
+        return baseUrl();
+    }
+
+    /**
+     * Stops the server, if it is running. Its dispatcher thread would otherwise keep the JVM alive.
+     */
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+            logger.info("Local application server stopped");
+        }
+    }
+
+    private static String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Answers a GET with a file of site/. Query strings are ignored; the pages read them in the browser.
+     */
+    private static void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String name = path.endsWith("/") ? path.substring(1) + "index.html" : path.substring(1);
+            byte[] body = file(name);
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String extension = name.substring(name.lastIndexOf('.') + 1);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPES.getOrDefault(extension, "application/octet-stream"));
+            // Pages are revalidated like the real application's; assets may come from the browser cache
+            exchange.getResponseHeaders().set("Cache-Control", name.startsWith("static/") ? "max-age=3600" : "no-cache");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the content of a file of site/.
+     *
+     * @param name The file name relative to site/, e.g. "inventory.html".
+     * @return The file content, or null if there is no such file.
+     */
+    private static byte[] file(String name) {
+        if (name.contains("..")) {
+            return null;
+        }
+        return files.computeIfAbsent(name, key -> {
+            try (InputStream input = LocalAppServer.class.getClassLoader().getResourceAsStream("site/" + key)) {
+                return Optional.ofNullable(input != null ? input.readAllBytes() : null);
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+}
@@ -0,0 +1,124 @@
+package utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-page, per-session cache of resolved elements keyed by locator.
+ * {@link ElementStateEngine} hands the cached element back to the browser, which reuses it while it is still
+ * attached to the document and the URL has not changed, and re-resolves the locator otherwise.
+ * Entries are dropped on a URL change, on a StaleElementReferenceException, or explicitly.
+ */
+public class LocatorCache {
+
+    // Hit/miss counters per page class, reported at the end of the suite
+    private static final Map<String, Stats> statsByOwner = new ConcurrentHashMap<>();
+
+    private final Map<By, WebElement> elements = new ConcurrentHashMap<>();
+    private final Stats stats;
+    // URL the cached elements were resolved on
+    private volatile String url;
+
+    /**
+     * Creates a cache for a page object.
+     *
+     * @param owner The name of the page object class owning the cache, used for reporting.
+     */
+    public LocatorCache(String owner) {
+        this.stats = statsByOwner.computeIfAbsent(owner, key -> new Stats());
+    }
+
+    /**
+     * Returns the cached element for a locator.
+     *
+     * @param locator The By locator.
+     * @return The cached element, or null.
+     */
+    public WebElement get(By locator) {
+        return elements.get(locator);
+    }
+
+    /**
+     * Returns the URL the cached elements were resolved on.
+     *
+     * @return The URL, or null if nothing has been cached yet.
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Stores the elements resolved by a wait and records which of them were served from the cache.
+     *
+     * @param currentUrl The URL of the page the elements were resolved on.
+     * @param conditions The conditions that were waited for.
+     * @param resolved   The matched elements, in the order of the conditions.
+     * @param fromCache  Whether each element was reused from the cache.
+     */
+    public void update(String currentUrl, ElementCondition[] conditions, List<WebElement> resolved, List<Boolean> fromCache) {
+        if (currentUrl != null && !currentUrl.equals(url)) {
+            elements.clear(); // The page changed, nothing cached for the previous URL can be reused
+            url = currentUrl;
+        }
+        for (int i = 0; i < conditions.length; i++) {
+            elements.put(conditions[i].getLocator(), resolved.get(i));
+            if (Boolean.TRUE.equals(fromCache.get(i))) {
+                stats.hits.incrementAndGet();
+            } else {
+                stats.misses.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Drops the cached element of a locator, e.g. after a StaleElementReferenceException.
+     *
+     * @param locator The By locator.
+     */
+    public void invalidate(By locator) {
+        elements.remove(locator);
+        stats.invalidations.incrementAndGet();
+    }
+
+    /**
+     * Drops every cached element.
+     */
+    public void invalidateAll() {
+        if (!elements.isEmpty()) {
+            elements.clear();
+            stats.invalidations.incrementAndGet();
+        }
+        url = null;
+    }
+
+    /**
+     * Builds a summary of the hit ratio of each page object's cache.
+     *
+     * @return One summary line per page object class.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        statsByOwner.forEach((owner, stats) -> {
+            long lookups = stats.hits.get() + stats.misses.get();
+            summaries.add(String.format("Locator cache (%s): lookups=%d, hits=%d, hitRatio=%.2f, invalidations=%d",
+                    owner, lookups, stats.hits.get(), lookups == 0 ? 0 : (double) stats.hits.get() / lookups,
+                    stats.invalidations.get()));
+        });
+        return summaries;
+    }
+
+    /**
+     * Hit, miss and invalidation counters of one page object class.
+     */
+    private static class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+    }
+}
@@ -0,0 +1,358 @@
+package utils;
+
+import org.openqa.selenium.HasCapabilities;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Network policy for Chromium sessions (Chrome and Edge), applied through the DevTools protocol when the driver is created.
+ * Requests matching network.block (images, fonts, analytics by default) are blocked before they leave the browser,
+ * the browser cache stays enabled, and network.throttle optionally emulates a slow network for performance tests.
+ * Blocked requests and responses served from the cache are counted per session and reported per test. Blocked requests
+ * are never fetched, so the bytes they would have cost are estimated from network.block.estimatedKb per resource type.
+ * Raw protocol commands are used rather than a versioned DevTools domain, so the policy does not depend on the browser version.
+ */
+public class NetworkPolicy {
+
+    // Logger for logging messages related to the network policy
+    private static final Logger logger = LoggerFactory.getLogger(NetworkPolicy.class);
+    // Throttling presets as {latency ms, download kbit/s, upload kbit/s}, matching the Chrome DevTools presets
+    private static final Map<String, long[]> THROTTLE_PRESETS = Map.of(
+            "slow-3g", new long[]{2000, 400, 400},
+            "fast-3g", new long[]{563, 1440, 675});
+
+    // Settings resolved from network.*, on first use
+    private static volatile Settings settings;
+    // Counters of every session the policy was applied to, keyed by the undecorated driver
+    private static final Map<WebDriver, Counters> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+    // Suite totals
+    private static final Counters totals = new Counters();
+
+    /**
+     * Applies the configured policy to a Chromium session. Other browsers, and sessions whose DevTools
+     * connection cannot be opened, are left as they are.
+     *
+     * @param driver  The newly created driver.
+     * @param browser The name of the browser, for logging.
+     */
+    public static void applyTo(WebDriver driver, String browser) {
+        if (!TestConfig.getBoolean("network.policy", true) || !isChromium(driver)) {
+            return;
+        }
+        Settings settings = settings();
+        try {
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSessionIfThereIsNotOne();
+            configure(devTools, settings);
+
+            Counters counters = new Counters();
+            devTools.addListener(event("Network.loadingFailed"), params -> {
+                if ("inspector".equals(params.get("blockedReason"))) { // Blocked by Network.setBlockedURLs
+                    String type = String.valueOf(params.get("type"));
+                    long bytes = settings.estimatedBytes(type);
+                    counters.block(type, bytes);
+                    totals.block(type, bytes);
+                }
+            });
+            devTools.addListener(event("Network.requestServedFromCache"),
+                    params -> counters.cachedRequestIds.add(String.valueOf(params.get("requestId"))));
+            devTools.addListener(event("Network.dataReceived"), params -> {
+                if (counters.cachedRequestIds.contains(String.valueOf(params.get("requestId")))) {
+                    long bytes = ((Number) params.get("dataLength")).longValue();
+                    counters.cachedBytes.addAndGet(bytes);
+                    totals.cachedBytes.addAndGet(bytes);
+                }
+            });
+            devTools.addListener(event("Network.loadingFinished"), params -> {
+                if (counters.cachedRequestIds.remove(String.valueOf(params.get("requestId")))) {
+                    counters.cachedRequests.incrementAndGet();
+                    totals.cachedRequests.incrementAndGet();
+                }
+                long bytes = ((Number) params.get("encodedDataLength")).longValue();
+                counters.transferredBytes.addAndGet(bytes);
+                totals.transferredBytes.addAndGet(bytes);
+            });
+            sessions.put(driver, counters);
+            logger.info("Network policy applied to {} session: {} blocked pattern(s), cache {}, throttle {}",
+                    browser, settings.blocked.size(), settings.cache ? "on" : "off", settings.throttleProfile);
+        } catch (Exception e) {
+            logger.warn("Failed to apply the network policy to the {} session, continuing without it: {}", browser, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves the network.* settings, so a bad value fails before a browser is started rather than after
+     * commands were already sent to it. Called by {@link DriverFactory} before every launch; the settings are
+     * read once.
+     *
+     * @throws IllegalArgumentException If network.throttle or network.block.estimatedKb is invalid.
+     */
+    public static void checkConfiguration() {
+        if (TestConfig.getBoolean("network.policy", true)) {
+            settings();
+        }
+    }
+
+    private static Settings settings() {
+        Settings current = settings;
+        if (current == null) {
+            current = new Settings();
+            settings = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns whether a driver controls a Chromium browser over DevTools: a local Chrome or Edge driver, or a remote
+     * Chrome or Edge session on the Grid that was augmented with DevTools support.
+     *
+     * @param driver The undecorated driver.
+     * @return True for Chromium sessions with DevTools.
+     */
+    static boolean isChromium(WebDriver driver) {
+        if (driver instanceof ChromiumDriver) {
+            return true;
+        }
+        if (!(driver instanceof HasDevTools) || !(driver instanceof HasCapabilities)) {
+            return false;
+        }
+        String browserName = ((HasCapabilities) driver).getCapabilities().getBrowserName();
+        return "chrome".equals(browserName) || "MicrosoftEdge".equals(browserName);
+    }
+
+    /**
+     * Applies the policy to another window of a session, e.g. one opened in a new browser context by
+     * {@link BrowserContextIsolation}. Does nothing if no policy is applied to the session.
+     *
+     * @param driver The driver of the session, possibly decorated.
+     * @param window The handle of the window.
+     */
+    public static void attach(WebDriver driver, String window) {
+        while (driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        if (!sessions.containsKey(driver)) {
+            return;
+        }
+        try {
+            DevTools devTools = ((HasDevTools) driver).getDevTools();
+            devTools.createSession(window); // Events of the new page reach the listeners registered in applyTo
+            configure(devTools, settings());
+        } catch (Exception e) {
+            logger.warn("Failed to apply the network policy to window {}: {}", window, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the configured blocking, cache and throttling commands to the page the DevTools session is attached to.
+     *
+     * @param devTools The DevTools connection.
+     * @param settings The validated settings.
+     */
+    private static void configure(DevTools devTools, Settings settings) {
+        devTools.send(command("Network.enable", Map.of()));
+        if (!settings.blocked.isEmpty()) {
+            devTools.send(command("Network.setBlockedURLs", Map.of("urls", settings.blocked)));
+        }
+        devTools.send(command("Network.setCacheDisabled", Map.of("cacheDisabled", !settings.cache)));
+        if (settings.throttle != null) {
+            devTools.send(command("Network.emulateNetworkConditions", Map.of(
+                    "offline", false,
+                    "latency", settings.throttle[0],
+                    "downloadThroughput", settings.throttle[1] * 1000 / 8, // bytes per second
+                    "uploadThroughput", settings.throttle[2] * 1000 / 8)));
+        }
+    }
+
+    /**
+     * Returns what the policy saved on a session since the previous call, and starts counting again.
+     * Called once per test, so each test reports its own requests.
+     *
+     * @param driver The driver of the session, possibly decorated.
+     * @return A one-line summary, or null if no policy is applied to the session.
+     */
+    public static String testSummary(WebDriver driver) {
+        while (driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        Counters counters = sessions.get(driver);
+        return counters != null ? counters.drain().describe() : null;
+    }
+
+    /**
+     * Builds a summary of what the policy saved over the whole suite: requests blocked per resource type with the
+     * bytes they are estimated to have cost, and responses served from the cache with their size.
+     *
+     * @return The summary line.
+     */
+    public static String metricsSummary() {
+        return "Network policy: " + totals.describe();
+    }
+
+    /**
+     * Splits the comma-separated network.block value. Patterns use * as a wildcard, e.g. "*.png" or "*google-analytics.com*".
+     */
+    private static List<String> patterns(String value) {
+        List<String> patterns = new ArrayList<>();
+        for (String pattern : value.split(",")) {
+            if (!pattern.isBlank()) {
+                patterns.add(pattern.trim());
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Resolves network.throttle: off, a preset (slow-3g, fast-3g) or custom, which reads
+     * network.throttle.latencyMs, network.throttle.downloadKbps and network.throttle.uploadKbps.
+     *
+     * @return {latency ms, download kbit/s, upload kbit/s}, or null if throttling is off.
+     * @throws IllegalArgumentException If the profile is unknown or a custom value is negative.
+     */
+    private static long[] throttle(String profile) {
+        switch (profile.toLowerCase()) {
+            case "off":
+                return null;
+            case "custom":
+                long[] custom = {TestConfig.getInt("network.throttle.latencyMs", 0),
+                        TestConfig.getInt("network.throttle.downloadKbps", 10_000),
+                        TestConfig.getInt("network.throttle.uploadKbps", 10_000)};
+                for (long value : custom) {
+                    if (value < 0) {
+                        throw new IllegalArgumentException("network.throttle.* values must not be negative: " + Arrays.toString(custom));
+                    }
+                }
+                return custom;
+            default:
+                long[] preset = THROTTLE_PRESETS.get(profile.toLowerCase());
+                if (preset == null) {
+                    throw new IllegalArgumentException("Unknown network.throttle profile: " + profile
+                            + "; use off, custom or one of " + new TreeSet<>(THROTTLE_PRESETS.keySet()));
+                }
+                return preset;
+        }
+    }
+
+    /**
+     * Parses network.block.estimatedKb, e.g. "Image=20,Font=30,Other=5": the size a blocked request of each DevTools
+     * resource type is assumed to have had. Types not listed use the Other entry.
+     *
+     * @throws IllegalArgumentException If an entry is not of the form Type=kilobytes.
+     */
+    private static Map<String, Long> estimates(String value) {
+        Map<String, Long> estimates = new HashMap<>();
+        for (String entry : value.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=");
+            try {
+                if (parts.length != 2 || Long.parseLong(parts[1].trim()) < 0) {
+                    throw new NumberFormatException();
+                }
+                estimates.put(parts[0].trim(), Long.parseLong(parts[1].trim()) * 1024);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("network.block.estimatedKb entries must look like Image=20, not " + entry.trim());
+            }
+        }
+        return estimates;
+    }
+
+    private static Command<Void> command(String method, Map<String, Object> params) {
+        return new Command<>(method, params);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> (Map<String, Object>) input.read(Map.class));
+    }
+
+    /**
+     * The network.* settings, validated.
+     */
+    private static class Settings {
+        private final List<String> blocked = patterns(TestConfig.get("network.block", ""));
+        private final boolean cache = TestConfig.getBoolean("network.cache", true);
+        private final String throttleProfile = TestConfig.get("network.throttle", "off");
+        private final long[] throttle = throttle(throttleProfile);
+        private final Map<String, Long> estimates = estimates(TestConfig.get("network.block.estimatedKb", ""));
+
+        /**
+         * Returns the bytes a blocked request of a resource type is assumed to have cost.
+         */
+        private long estimatedBytes(String type) {
+            return estimates.getOrDefault(type, estimates.getOrDefault("Other", 0L));
+        }
+    }
+
+    /**
+     * Requests saved by the policy. Updated from the DevTools connection thread.
+     */
+    private static class Counters {
+        private final AtomicLong blockedRequests = new AtomicLong();
+        private final AtomicLong blockedBytes = new AtomicLong();
+        // Blocked requests per DevTools resource type, e.g. Image or Font
+        private final Map<String, AtomicLong> blockedByType = new ConcurrentHashMap<>();
+        private final AtomicLong cachedRequests = new AtomicLong();
+        private final AtomicLong cachedBytes = new AtomicLong();
+        private final AtomicLong transferredBytes = new AtomicLong();
+        // Requests answered from the cache whose data is still arriving
+        private final Set<String> cachedRequestIds = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Counts a blocked request of a resource type, with the bytes it is estimated to have cost.
+         */
+        private void block(String type, long estimatedBytes) {
+            blockedRequests.incrementAndGet();
+            blockedBytes.addAndGet(estimatedBytes);
+            blockedByType.computeIfAbsent(type, key -> new AtomicLong()).incrementAndGet();
+        }
+
+        /**
+         * Moves the current counts into a new instance and resets this one.
+         */
+        private Counters drain() {
+            Counters drained = new Counters();
+            drained.blockedRequests.set(blockedRequests.getAndSet(0));
+            drained.blockedBytes.set(blockedBytes.getAndSet(0));
+            blockedByType.forEach((type, count) -> {
+                long blocked = count.getAndSet(0);
+                if (blocked > 0) {
+                    drained.blockedByType.put(type, new AtomicLong(blocked));
+                }
+            });
+            drained.cachedRequests.set(cachedRequests.getAndSet(0));
+            drained.cachedBytes.set(cachedBytes.getAndSet(0));
+            drained.transferredBytes.set(transferredBytes.getAndSet(0));
+            return drained;
+        }
+
+        private String describe() {
+            Map<String, Long> byType = new TreeMap<>();
+            blockedByType.forEach((type, count) -> byType.put(type, count.get()));
+            return String.format("blocked=%d requests %s (~%d KB saved, estimated), fromCache=%d requests (%d KB), transferred=%d KB",
+                    blockedRequests.get(), byType, blockedBytes.get() / 1024, cachedRequests.get(), cachedBytes.get() / 1024,
+                    transferredBytes.get() / 1024);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package utils;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk archive of recorded HTTP responses, used by {@link ReplayProxy}. responses.bin holds the records
+ * back to back; index.tsv maps each request ("GET http://host/path?query") to the offset and length of its record.
+ * Recording appends to both files, so an interrupted run leaves a usable archive. Replaying maps responses.bin
+ * into memory once and serves bodies straight from the mapping.
+ * <p>
+ * Record layout: status (short), header count (short), each header as name and value
+ * (int length + UTF-8 bytes), body length (int), body bytes.
+ */
+public class ReplayArchive implements AutoCloseable {
+
+    private static final String DATA_FILE = "responses.bin";
+    private static final String INDEX_FILE = "index.tsv";
+
+    private final Path directory;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Open while recording only
+    private final FileChannel data;
+    private final BufferedWriter index;
+    private long position;
+
+    private ReplayArchive(Path directory, FileChannel data, BufferedWriter index) {
+        this.directory = directory;
+        this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * Creates an empty archive, replacing any earlier recording in the directory.
+     *
+     * @param directory The archive directory.
+     * @return The archive, open for recording.
+     * @throws IOException If the files cannot be created.
+     */
+    public static ReplayArchive create(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel data = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        BufferedWriter index = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8);
+        return new ReplayArchive(directory, data, index);
+    }
+
+    /**
+     * Opens a recorded archive for replaying. The record heads are parsed once; bodies stay in the mapped file.
+     *
+     * @param directory The archive directory.
+     * @return The archive, read-only.
+     * @throws IOException If the archive is missing or cannot be read.
+     */
+    public static ReplayArchive open(Path directory) throws IOException {
+        Path dataPath = directory.resolve(DATA_FILE);
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(dataPath) || !Files.isRegularFile(indexPath)) {
+            throw new IOException("No replay archive in " + directory.toAbsolutePath() + "; record one with -Dreplay.mode=record");
+        }
+        ReplayArchive archive = new ReplayArchive(directory, null, null);
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // The mapping outlives the channel
+        }
+        for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length == 3) {
+                archive.entries.putIfAbsent(fields[2], Entry.parse(mapped, Integer.parseInt(fields[0])));
+            }
+        }
+        return archive;
+    }
+
+    /**
+     * Looks a request up.
+     *
+     * @param key The request, e.g. "GET http://www.saucedemo.com/inventory.html".
+     * @return The recorded response, or null if the request was not recorded.
+     */
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Appends a response, unless the request is already recorded; the first response of a run wins.
+     *
+     * @param key     The request.
+     * @param status  The response status.
+     * @param headers The response headers, as {name, value} pairs.
+     * @param body    The response body.
+     * @return True if the response was added.
+     * @throws IOException If the archive cannot be written.
+     */
+    public synchronized boolean record(String key, int status, List<String[]> headers, byte[] body) throws IOException {
+        if (entries.containsKey(key)) {
+            return false;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeShort(status);
+        record.writeShort(headers.size());
+        for (String[] header : headers) {
+            writeString(record, header[0]);
+            writeString(record, header[1]);
+        }
+        record.writeInt(body.length);
+        record.write(body);
+        byte[] recorded = bytes.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(recorded);
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            position += data.write(buffer, position);
+        }
+        index.write(offset + "\t" + recorded.length + "\t" + key);
+        index.newLine();
+        index.flush();
+        entries.put(key, Entry.parse(ByteBuffer.wrap(recorded), 0));
+        return true;
+    }
+
+    /**
+     * Returns the number of recorded responses.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (data != null) {
+            index.close();
+            data.close();
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A recorded response. The body is a view of the archive, not a copy.
+     */
+    public static class Entry {
+        private final int status;
+        private final List<String[]> headers;
+        private final ByteBuffer body;
+
+        private Entry(int status, List<String[]> headers, ByteBuffer body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        private static Entry parse(ByteBuffer archive, int offset) {
+            ByteBuffer buffer = archive.duplicate().position(offset);
+            int status = buffer.getShort();
+            int count = buffer.getShort();
+            List<String[]> headers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                headers.add(new String[]{readString(buffer), readString(buffer)});
+            }
+            int length = buffer.getInt();
+            ByteBuffer body = buffer.slice(buffer.position(), length);
+            return new Entry(status, Collections.unmodifiableList(headers), body);
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public List<String[]> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Returns the body, positioned at its start; every call returns an independent view.
+         *
+         * @return The body.
+         */
+        public ByteBuffer getBody() {
+            return body.duplicate();
+        }
+    }
+}
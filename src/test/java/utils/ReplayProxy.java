@@ -0,0 +1,596 @@
+package utils;
+
+import org.openqa.selenium.Capabilities;
+import org.openqa.selenium.Proxy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WrapsDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Record-and-replay HTTP proxy between the browser and the remote application (app.mode=remote).
+ * With replay.mode=record every request goes to the network and GET responses are stored in the archive
+ * (replay.archive, see {@link ReplayArchive}); with replay.mode=replay requests are answered from the memory-mapped
+ * archive only, without network access, so page loads are fast and repeatable.
+ * <p>
+ * Every browser session gets its own proxy port, so hits and misses are counted per session and reported per test.
+ * With replay.strict=true a test that requested anything missing from the archive fails.
+ * The browser reaches the application over plain HTTP through the proxy, which fetches it over HTTPS when recording;
+ * HTTPS requests to other hosts are tunnelled without being recorded, and refused when replaying.
+ */
+public class ReplayProxy {
+
+    // Logger for logging messages related to the replay proxy
+    private static final Logger logger = LoggerFactory.getLogger(ReplayProxy.class);
+    // Headers that only apply to one connection or that the proxy sets itself. Conditional requests are
+    // forwarded unconditionally, so a 304 for the browser's cache is never recorded.
+    private static final Set<String> SKIPPED_HEADERS = Set.of("connection", "keep-alive", "proxy-connection",
+            "proxy-authorization", "proxy-authenticate", "te", "trailer", "transfer-encoding", "upgrade",
+            "content-length", "host", "expect", "strict-transport-security", "if-none-match", "if-modified-since");
+    // Missed requests kept per session and test, for the report
+    private static final int MAX_MISSES = 20;
+
+    /**
+     * What the proxy does with requests.
+     */
+    public enum Mode {
+        OFF, RECORD, REPLAY
+    }
+
+    // Hosts whose https:// base URL was rewritten to http://; the proxy fetches them over HTTPS
+    private static final Set<String> upgradedHosts = ConcurrentHashMap.newKeySet();
+    // Endpoints opened for sessions that are being created, keyed by port
+    private static final Map<Integer, Endpoint> pending = new ConcurrentHashMap<>();
+    // Endpoint of every session, keyed by the undecorated driver
+    private static final Map<WebDriver, Endpoint> sessions = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final List<Endpoint> endpoints = Collections.synchronizedList(new ArrayList<>());
+    // Suite totals
+    private static final Counters totals = new Counters();
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "replay-proxy");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static ReplayArchive archive;
+    private static HttpClient client;
+
+    /**
+     * Returns the configured mode. The proxy only applies to the remote application.
+     *
+     * @return The mode; OFF in app.mode=local.
+     */
+    public static Mode mode() {
+        if (LocalAppServer.isEnabled()) {
+            return Mode.OFF;
+        }
+        return Mode.valueOf(TestConfig.get("replay.mode", "off").toUpperCase());
+    }
+
+    /**
+     * Rewrites an https:// base URL to http://, so the browser sends its requests for the application through
+     * the proxy in clear text and they can be recorded. Other URLs, and any URL with the proxy off, are kept.
+     *
+     * @param baseUrl The base URL of the application.
+     * @return The base URL the browser should use.
+     */
+    public static String resolveBaseUrl(String baseUrl) {
+        if (mode() == Mode.OFF || !baseUrl.startsWith("https://")) {
+            return baseUrl;
+        }
+        URI uri = URI.create(baseUrl);
+        upgradedHosts.add(uri.getHost());
+        return "http://" + baseUrl.substring("https://".length());
+    }
+
+    /**
+     * Routes a new Chrome or Edge session through its own proxy port.
+     *
+     * @param options The browser options.
+     * @param <T>     The options type.
+     * @return The same options, for chaining.
+     */
+    public static <T extends ChromiumOptions<?>> T applyTo(T options) {
+        if (mode() != Mode.OFF) {
+            options.setProxy(openEndpoint());
+            options.addArguments("--disable-features=HttpsUpgrades"); // Keep http:// navigations on http://
+        }
+        return options;
+    }
+
+    /**
+     * Routes a new Firefox session through its own proxy port.
+     *
+     * @param options The browser options.
+     * @return The same options, for chaining.
+     */
+    public static FirefoxOptions applyTo(FirefoxOptions options) {
+        if (mode() != Mode.OFF) {
+            options.setProxy(openEndpoint());
+            // Keep http:// navigations on http://, also in private windows
+            options.addPreference("dom.security.https_first", false);
+            options.addPreference("dom.security.https_first_pbm", false);
+        }
+        return options;
+    }
+
+    /**
+     * Associates a new session with the proxy port of its options, so its requests are reported per test.
+     *
+     * @param driver  The new driver.
+     * @param options The options the driver was created with.
+     */
+    public static void bind(WebDriver driver, Capabilities options) {
+        Proxy proxy = Proxy.extractFrom(options);
+        if (proxy == null || proxy.getHttpProxy() == null) {
+            return;
+        }
+        String address = proxy.getHttpProxy();
+        Endpoint endpoint = pending.remove(Integer.parseInt(address.substring(address.lastIndexOf(':') + 1)));
+        if (endpoint != null) {
+            sessions.put(driver, endpoint);
+        }
+    }
+
+    /**
+     * Returns the requests the proxy handled for a session since the previous call, and starts counting again.
+     * Called once per test, so each test reports its own requests.
+     *
+     * @param driver The driver of the session, possibly decorated.
+     * @return The usage of the test, or null if the session does not go through the proxy.
+     */
+    public static Usage drain(WebDriver driver) {
+        while (driver instanceof WrapsDriver) {
+            driver = ((WrapsDriver) driver).getWrappedDriver();
+        }
+        Endpoint endpoint = sessions.get(driver);
+        return endpoint != null ? new Usage(endpoint.counters.drain(), TestConfig.getBoolean("replay.strict", false)) : null;
+    }
+
+    /**
+     * Builds a summary of the requests the proxy handled over the whole suite.
+     *
+     * @return The summary line.
+     */
+    public static String metricsSummary() {
+        return "Replay proxy (" + mode().name().toLowerCase() + "): " + totals.describe();
+    }
+
+    /**
+     * Closes every proxy port and the archive. Called when the suite finishes.
+     */
+    public static synchronized void stop() {
+        synchronized (endpoints) {
+            for (Endpoint endpoint : endpoints) {
+                endpoint.close();
+            }
+            endpoints.clear();
+        }
+        pending.clear();
+        if (archive != null) {
+            try {
+                archive.close();
+                logger.info("Replay archive {} holds {} responses", archive.getDirectory().toAbsolutePath(), archive.size());
+            } catch (IOException e) {
+                logger.warn("Failed to close the replay archive: {}", e.getMessage());
+            }
+            archive = null;
+        }
+    }
+
+    /**
+     * Opens the archive on first use: a fresh one when recording, the existing one when replaying.
+     */
+    private static synchronized ReplayArchive archive() {
+        if (archive == null) {
+            Path directory = Path.of(TestConfig.get("replay.archive", "replay"));
+            try {
+                if (mode() == Mode.RECORD) {
+                    archive = ReplayArchive.create(directory);
+                    client = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_1_1)
+                            .followRedirects(HttpClient.Redirect.NEVER) // The browser follows redirects itself
+                            .connectTimeout(Duration.ofSeconds(10))
+                            .build();
+                    logger.info("Recording responses to {}", directory.toAbsolutePath());
+                } else {
+                    archive = ReplayArchive.open(directory);
+                    logger.info("Replaying {} responses from {}", archive.size(), directory.toAbsolutePath());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open the replay archive: " + e.getMessage(), e);
+            }
+        }
+        return archive;
+    }
+
+    private static Proxy openEndpoint() {
+        archive(); // Fail before the browser starts if there is nothing to replay
+        try {
+            Endpoint endpoint = new Endpoint();
+            endpoints.add(endpoint);
+            pending.put(endpoint.socket.getLocalPort(), endpoint);
+            String address = "127.0.0.1:" + endpoint.socket.getLocalPort();
+            return new Proxy().setHttpProxy(address).setSslProxy(address);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open a replay proxy port", e);
+        }
+    }
+
+    /**
+     * Serves one connection of the browser: HTTP/1.1 requests in absolute form, with keep-alive, or a CONNECT tunnel.
+     */
+    private static void serve(Socket socket, Counters counters) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            Request request;
+            while ((request = Request.read(in)) != null) {
+                if ("CONNECT".equals(request.method)) {
+                    tunnel(request, socket, in, out, counters);
+                    return;
+                }
+                handle(request, out, counters);
+                out.flush();
+                if (request.closes) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Replay proxy connection closed: {}", e.getMessage());
+        }
+    }
+
+    private static void handle(Request request, OutputStream out, Counters counters) throws IOException {
+        boolean head = "HEAD".equals(request.method);
+        // HEAD requests are answered with the head of the recorded GET
+        String key = (head ? "GET" : request.method) + " " + request.target;
+        if (mode() == Mode.REPLAY) {
+            ReplayArchive.Entry entry = archive().get(key);
+            if (entry == null) {
+                counters.miss(key);
+                writeError(out, 502, "Not in the replay archive: " + key);
+                return;
+            }
+            counters.hits.incrementAndGet();
+            totals.hits.incrementAndGet();
+            ByteBuffer body = entry.getBody();
+            writeHead(out, entry.getStatus(), entry.getHeaders(), body.remaining());
+            if (!head) {
+                counters.servedBytes.addAndGet(body.remaining());
+                totals.servedBytes.addAndGet(body.remaining());
+                Channels.newChannel(out).write(body);
+            }
+            return;
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = forward(request);
+        } catch (IOException | IllegalArgumentException e) {
+            writeError(out, 502, "Upstream request failed: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        List<String[]> headers = new ArrayList<>();
+        response.headers().map().forEach((name, values) -> {
+            if (!SKIPPED_HEADERS.contains(name.toLowerCase())) {
+                values.forEach(value -> headers.add(new String[]{name, downgrade(value)}));
+            }
+        });
+        writeHead(out, response.statusCode(), headers, response.body().length);
+        if (!head) {
+            out.write(response.body());
+        }
+        if ("GET".equals(request.method) && response.statusCode() != 206
+                && archive().record(key, response.statusCode(), headers, response.body())) {
+            counters.recorded.incrementAndGet();
+            totals.recorded.incrementAndGet();
+        }
+    }
+
+    /**
+     * Sends a request to the network, over HTTPS for the hosts of rewritten base URLs.
+     */
+    private static HttpResponse<byte[]> forward(Request request) throws IOException, InterruptedException {
+        URI target = URI.create(request.target);
+        if ("http".equals(target.getScheme()) && upgradedHosts.contains(target.getHost())) {
+            target = URI.create("https" + request.target.substring("http".length()));
+        }
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(30))
+                .method(request.method, request.body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(request.body));
+        for (String[] header : request.headers) {
+            if (!SKIPPED_HEADERS.contains(header[0].toLowerCase())) {
+                builder.header(header[0], header[1]);
+            }
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Keeps redirects to a rewritten host on http://, so the browser stays on the proxy.
+     */
+    private static String downgrade(String value) {
+        for (String host : upgradedHosts) {
+            value = value.replace("https://" + host, "http://" + host);
+        }
+        return value;
+    }
+
+    /**
+     * Tunnels an HTTPS connection to a host the proxy cannot record. Refused when replaying.
+     */
+    private static void tunnel(Request request, Socket socket, InputStream in, OutputStream out, Counters counters) throws IOException {
+        if (mode() == Mode.REPLAY) {
+            counters.miss("CONNECT " + request.target);
+            writeError(out, 502, "HTTPS requests cannot be replayed: " + request.target);
+            out.flush();
+            return;
+        }
+        String[] hostAndPort = request.target.split(":");
+        try (Socket upstream = new Socket(hostAndPort[0], hostAndPort.length > 1 ? Integer.parseInt(hostAndPort[1]) : 443)) {
+            upstream.setTcpNoDelay(true);
+            counters.tunnelled.incrementAndGet();
+            totals.tunnelled.incrementAndGet();
+            out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            executor.execute(() -> {
+                try {
+                    upstream.getInputStream().transferTo(socket.getOutputStream());
+                } catch (IOException e) {
+                    logger.debug("Tunnel to {} closed: {}", request.target, e.getMessage());
+                } finally {
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                        // Already closed
+                    }
+                }
+            });
+            in.transferTo(upstream.getOutputStream());
+        }
+    }
+
+    private static void writeHead(OutputStream out, int status, List<String[]> headers, long contentLength) throws IOException {
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n");
+        for (String[] header : headers) {
+            head.append(header[0]).append(": ").append(header[1]).append("\r\n");
+        }
+        head.append("Content-Length: ").append(contentLength).append("\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private static void writeError(OutputStream out, int status, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        writeHead(out, status, List.<String[]>of(new String[]{"Content-Type", "text/plain; charset=utf-8"}), body.length);
+        out.write(body);
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 204:
+                return "No Content";
+            case 301:
+                return "Moved Permanently";
+            case 302:
+                return "Found";
+            case 304:
+                return "Not Modified";
+            case 404:
+                return "Not Found";
+            case 502:
+                return "Bad Gateway";
+            default:
+                return "Status";
+        }
+    }
+
+    /**
+     * A proxy port of one browser session.
+     */
+    private static class Endpoint {
+        private final ServerSocket socket;
+        private final Counters counters = new Counters();
+
+        private Endpoint() throws IOException {
+            socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            executor.execute(this::accept);
+        }
+
+        private void accept() {
+            try {
+                while (!socket.isClosed()) {
+                    Socket connection = socket.accept();
+                    executor.execute(() -> serve(connection, counters));
+                }
+            } catch (IOException e) {
+                // Closed by stop()
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * A request read from the browser.
+     */
+    private static class Request {
+        private final String method;
+        // Absolute URL, or host:port for CONNECT
+        private final String target;
+        private final List<String[]> headers;
+        private final byte[] body;
+        private final boolean closes;
+
+        private Request(String method, String target, List<String[]> headers, byte[] body, boolean closes) {
+            this.method = method;
+            this.target = target;
+            this.headers = headers;
+            this.body = body;
+            this.closes = closes;
+        }
+
+        /**
+         * Reads the next request of a connection.
+         *
+         * @return The request, or null at the end of the connection.
+         */
+        private static Request read(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return null;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length != 3) {
+                throw new IOException("Malformed request line: " + requestLine);
+            }
+            List<String[]> headers = new ArrayList<>();
+            int contentLength = 0;
+            boolean closes = "HTTP/1.0".equals(parts[2]);
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    String name = line.substring(0, colon).trim();
+                    String value = line.substring(colon + 1).trim();
+                    headers.add(new String[]{name, value});
+                    if ("content-length".equalsIgnoreCase(name)) {
+                        contentLength = Integer.parseInt(value);
+                    } else if (("connection".equalsIgnoreCase(name) || "proxy-connection".equalsIgnoreCase(name))
+                            && "close".equalsIgnoreCase(value)) {
+                        closes = true;
+                    } else if ("transfer-encoding".equalsIgnoreCase(name)) {
+                        throw new IOException("Chunked request bodies are not supported");
+                    }
+                }
+            }
+            return new Request(parts[0], parts[1], headers, in.readNBytes(contentLength), closes);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return b == -1 && line.size() == 0 ? null : line.toString(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Requests handled by the proxy. Updated from the connection threads.
+     */
+    private static class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong recorded = new AtomicLong();
+        private final AtomicLong tunnelled = new AtomicLong();
+        private final AtomicLong servedBytes = new AtomicLong();
+        private final List<String> missedRequests = Collections.synchronizedList(new ArrayList<>());
+
+        private void miss(String key) {
+            misses.incrementAndGet();
+            totals.misses.incrementAndGet();
+            if (missedRequests.size() < MAX_MISSES) {
+                missedRequests.add(key);
+            }
+            logger.warn("Not in the replay archive: {}", key);
+        }
+
+        /**
+         * Moves the current counts into a new instance and resets this one.
+         */
+        private Counters drain() {
+            Counters drained = new Counters();
+            drained.hits.set(hits.getAndSet(0));
+            drained.misses.set(misses.getAndSet(0));
+            drained.recorded.set(recorded.getAndSet(0));
+            drained.tunnelled.set(tunnelled.getAndSet(0));
+            drained.servedBytes.set(servedBytes.getAndSet(0));
+            synchronized (missedRequests) {
+                drained.missedRequests.addAll(missedRequests);
+                missedRequests.clear();
+            }
+            return drained;
+        }
+
+        private String describe() {
+            return String.format("hits=%d, misses=%d, recorded=%d, tunnelled=%d, served=%d KB",
+                    hits.get(), misses.get(), recorded.get(), tunnelled.get(), servedBytes.get() / 1024);
+        }
+    }
+
+    /**
+     * Requests of one test.
+     */
+    public static class Usage {
+        private final Counters counters;
+        private final boolean strict;
+
+        private Usage(Counters counters, boolean strict) {
+            this.counters = counters;
+            this.strict = strict;
+        }
+
+        /**
+         * Returns whether the test must fail: in strict mode, it requested something missing from the archive.
+         *
+         * @return True if the test violated strict mode.
+         */
+        public boolean violatesStrictMode() {
+            return strict && counters.misses.get() > 0;
+        }
+
+        public List<String> getMissedRequests() {
+            return counters.missedRequests;
+        }
+
+        public String describe() {
+            return "replay " + counters.describe();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package utils;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of test results, one JSON object per line.
+ * Each result is written as soon as the test finishes and the buffer is flushed periodically,
+ * so nothing is kept in memory and a run that dies half-way still leaves every finished test on disk.
+ * {@link ReportRenderer} turns the journal into the Extent report.
+ */
+public class ReportJournal implements AutoCloseable {
+
+    private static final Gson gson = new Gson();
+
+    private final Path path;
+    private final BufferedWriter writer;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Opens a journal for appending and starts the periodic flush.
+     *
+     * @param path            The journal file.
+     * @param flushIntervalMs How often buffered lines are flushed to disk.
+     * @throws IOException If the file cannot be opened.
+     */
+    public ReportJournal(Path path, long flushIntervalMs) throws IOException {
+        this.path = path;
+        Files.createDirectories(path.getParent());
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "report-journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleAtFixedRate(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the journal file.
+     *
+     * @return The path of the journal.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends a record as a single line.
+     *
+     * @param record The record; values must be strings, numbers, booleans, null or arrays of them.
+     * @param flush  Whether to flush immediately, e.g. for a failure that should not be lost.
+     */
+    public synchronized void append(Map<String, Object> record, boolean flush) {
+        try {
+            writer.write(gson.toJson(record)); // Gson escapes line breaks, so one record is always one line
+            writer.newLine();
+            if (flush) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to write to report journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Flushes buffered records, logging instead of throwing so the periodic task keeps running.
+     */
+    private synchronized void flushQuietly() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to flush report journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the periodic flush and closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flusher.shutdownNow();
+        writer.close();
+    }
+}
@@ -0,0 +1,213 @@
+package utils;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.MediaEntityBuilder;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Renders the Extent report from a {@link ReportJournal}: every test record becomes an ExtentReports test with
+ * its browser, timing, status, failure details, network summary and screenshot, as the listener would have logged it
+ * in report.mode=extent. The journal is read line by line; only the Extent model is held in memory, once, when the
+ * suite has ended. A journal left behind by a crashed run can be rendered by hand with
+ * {@code java utils.ReportRenderer <journal.jsonl> [report.html]}.
+ */
+public class ReportRenderer {
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * Renders a journal to an Extent HTML report.
+     *
+     * @param journal The journal file.
+     * @param report  The HTML file to write.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void render(Path journal, Path report) throws IOException {
+        ExtentSparkReporter spark = new ExtentSparkReporter(report.toString());
+        spark.config().setDocumentTitle("Test Report");
+        spark.config().setReportName("Extent Report");
+        ExtentReports extent = new ExtentReports();
+        extent.attachReporter(spark);
+
+        boolean[] complete = {false};
+        List<String> metrics = new ArrayList<>();
+        int unreadable = forEachRecord(journal, record -> {
+            switch (text(record, "event")) {
+                case "suite-end":
+                    complete[0] = true;
+                    break;
+                case "metric":
+                    if (record.has("table")) {
+                        extent.createTest(text(record, "name")).info(MarkupHelper.createTable(
+                                gson.fromJson(record.get("table"), String[][].class)));
+                    } else {
+                        metrics.add(text(record, "text"));
+                    }
+                    break;
+                case "test":
+                    addTest(extent, record);
+                    break;
+                default:
+                    break;
+            }
+        });
+        if (!metrics.isEmpty()) {
+            extent.createTest("Metrics").info(MarkupHelper.createCodeBlock(String.join("\n", metrics)));
+        }
+        if (!complete[0] || unreadable > 0) {
+            ExtentTest run = extent.createTest("Incomplete run");
+            if (!complete[0]) {
+                run.warning("The run did not finish; this report contains every test completed before it stopped.");
+            }
+            if (unreadable > 0) {
+                run.warning("Skipped " + unreadable + " unreadable journal line(s).");
+            }
+        }
+        extent.flush();
+    }
+
+    /**
+     * Adds the Extent test of one test record.
+     *
+     * @param extent The report.
+     * @param record The test record.
+     */
+    private static void addTest(ExtentReports extent, JsonObject record) {
+        String browser = text(record, "browser");
+        ExtentTest test = extent.createTest(text(record, "name") + (browser.isEmpty() ? "" : " [" + browser + "]"));
+        if (!browser.isEmpty()) {
+            test.assignDevice(browser); // Group results by browser, as in report.mode=extent
+        }
+        if (record.has("start")) {
+            long start = record.get("start").getAsLong();
+            test.getModel().setStartTime(new Date(start));
+            test.getModel().setEndTime(new Date(record.has("end") ? record.get("end").getAsLong() : start));
+        }
+        if (record.has("network")) {
+            test.info("Network: " + text(record, "network"));
+        }
+        Status status = status(text(record, "status"));
+        switch (status) {
+            case PASS:
+                test.pass("Test passed");
+                break;
+            case FAIL:
+                test.fail(record.has("message") ? "Exception Message: " + text(record, "message")
+                        : "Test failed without throwing an exception");
+                break;
+            default:
+                test.log(status, record.has("message") ? text(record, "message") : "Test " + status);
+                break;
+        }
+        if (record.has("stackTrace")) {
+            test.log(status, MarkupHelper.createCodeBlock(text(record, "stackTrace")));
+        }
+        if (record.has("screenshot")) {
+            test.log(status, "Screenshot", MediaEntityBuilder.createScreenCaptureFromPath(text(record, "screenshot")).build());
+        }
+    }
+
+    /**
+     * Maps the status of a test record to an Extent status.
+     *
+     * @param status The journal status: PASS, FAIL, SKIP or WARNING.
+     * @return The Extent status; INFO for anything else.
+     */
+    private static Status status(String status) {
+        switch (status) {
+            case "PASS":
+                return Status.PASS;
+            case "FAIL":
+                return Status.FAIL;
+            case "SKIP":
+                return Status.SKIP;
+            case "WARNING":
+                return Status.WARNING;
+            default:
+                return Status.INFO;
+        }
+    }
+
+    /**
+     * Streams the records of a journal. Lines that cannot be parsed, such as a line cut off
+     * by a crash, are skipped.
+     *
+     * @param journal The journal file.
+     * @param action  The action to run for each record.
+     * @return The number of skipped lines.
+     * @throws IOException If the journal cannot be read or the action fails.
+     */
+    private static int forEachRecord(Path journal, RecordAction action) throws IOException {
+        int unreadable = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonObject record;
+                try {
+                    record = gson.fromJson(line, JsonObject.class);
+                } catch (JsonParseException e) {
+                    unreadable++;
+                    continue;
+                }
+                if (record != null) {
+                    action.accept(record);
+                }
+            }
+        }
+        return unreadable;
+    }
+
+    /**
+     * Reads a string member of a record.
+     *
+     * @param record The record.
+     * @param name   The member name.
+     * @return The value, or an empty string if it is missing or null.
+     */
+    private static String text(JsonObject record, String name) {
+        return record.has(name) && !record.get(name).isJsonNull() ? record.get(name).getAsString() : "";
+    }
+
+    /**
+     * Renders a journal from the command line, e.g. one left behind by a crashed run.
+     *
+     * @param args The journal path and, optionally, the report path (defaults to the journal path with .html).
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReportRenderer <journal.jsonl> [report.html]");
+            System.exit(1);
+        }
+        Path journal = Path.of(args[0]);
+        Path report = args.length > 1 ? Path.of(args[1])
+                : journal.resolveSibling(journal.getFileName().toString().replaceFirst("\\.jsonl$", "") + ".html");
+        render(journal, report);
+        System.out.println("Report rendered at: " + report);
+    }
+
+    /**
+     * Callback for a journal record.
+     */
+    private interface RecordAction {
+        void accept(JsonObject record) throws IOException;
+    }
+}
@@ -1,33 +1,316 @@
 package utils;
 
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.testng.IRetryAnalyzer;
 import org.testng.ITestResult;
-import pages.BaseClass;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Retries failed tests whose failure is classified as retryable (retry.classes, by default infrastructure
+ * failures and navigation timeouts). Assertion failures are never retried. Before a retry the browser of the failed
+ * attempt is discarded, so the retry runs on another session, and the retry waits with exponential backoff
+ * (retry.backoffMs, doubled per attempt up to retry.backoffMaxMs). Each test is retried at most retry.max times,
+ * and all tests of a suite share a budget of retry.budget retries (a number, or a percentage of the suite's
+ * test methods), so a broken environment cannot multiply the run time.
+ * <p>
+ * Outcomes, retries and failure classes are recorded per test and added to the flake statistics in
+ * retry.statsFile, which accumulate over runs. Attached to every test by {@link RetryTransformer}.
+ */
 public class RetryAnalyzer implements IRetryAnalyzer {
 
-    // Counter to keep track of the number of retries
+    // Logger for logging messages related to retries
+    private static final Logger logger = LoggerFactory.getLogger(RetryAnalyzer.class);
+    // Messages of WebDriver exceptions raised when the browser or its driver went away
+    private static final List<String> INFRASTRUCTURE_MESSAGES = List.of("disconnected", "not reachable",
+            "session deleted", "browser has closed", "connection refused", "failed to decode response");
+    // Messages of page load and document ready timeouts
+    private static final List<String> NAVIGATION_MESSAGES = List.of("document.readystate",
+            "timed out receiving message from renderer", "timeout loading page");
+
+    // Retries used and allowed per suite
+    private static final Map<String, AtomicInteger> budgetUsed = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> budgets = new ConcurrentHashMap<>();
+    // Flake statistics of this run, keyed by test name
+    private static final Map<String, FlakeRecord> flakes = new ConcurrentHashMap<>();
+
+    // Retries of the test this analyzer is attached to
     private int retryCount = 0;
-    // Maximum number of retries allowed
-    private static final int maxRetryCount = 2; // Set the maximum retry count
 
     /**
-     * Determines whether the failed test should be retried.
+     * Kinds of test failures.
+     */
+    public enum FailureClass {
+        // The browser session died or could not be reached
+        INFRASTRUCTURE,
+        // A page did not finish loading in time
+        NAVIGATION,
+        // An element was missing, stale or did not reach the expected state in time
+        ELEMENT,
+        // An assertion failed
+        ASSERTION,
+        OTHER
+    }
+
+    /**
+     * Determines whether the failed test should be retried. Called on the test thread, before the
+     * configuration methods that release the test's browser.
      *
      * @param result The result of the test execution.
      * @return True if the test should be retried, otherwise false.
      */
     @Override
     public boolean retry(ITestResult result) {
-        // Check if the current retry count is less than the maximum allowed retries
-        if (retryCount < maxRetryCount) {
-            retryCount++; // Increment the retry count
-            // Reinitialize WebDriver before retrying the test
-            BaseClass baseClass = (BaseClass) result.getInstance();
-            baseClass.setUp(result.getTestContext().getCurrentXmlTest().getParameter("browser"),
-                    result.getTestContext().getCurrentXmlTest().getParameter("baseUrl"));
-            return true; // Return true to indicate that the test should be retried
-        }
-        return false; // Return false to indicate no further retries
+        FailureClass failureClass = classify(result.getThrowable());
+        String test = testName(result);
+        flakes.computeIfAbsent(test, key -> new FlakeRecord()).failedAttempt(failureClass);
+
+        if (!retryableClasses().contains(failureClass)) {
+            logger.info("Not retrying {}: {} failure", test, failureClass);
+            return false;
+        }
+        if (retryCount >= TestConfig.getInt("retry.max", 2)) {
+            logger.info("Not retrying {}: already retried {} times", test, retryCount);
+            return false;
+        }
+        String suite = result.getTestContext().getSuite().getName();
+        int budget = budgets.computeIfAbsent(suite, key -> budget(result.getTestContext().getSuite().getAllMethods().size()));
+        if (budgetUsed.computeIfAbsent(suite, key -> new AtomicInteger()).getAndUpdate(used -> used < budget ? used + 1 : used) >= budget) {
+            logger.warn("Not retrying {}: the retry budget of {} retries for suite {} is used up", test, budget, suite);
+            return false;
+        }
+
+        retryCount++;
+        flakes.get(test).retries.incrementAndGet();
+        WebDriverPool.discardCurrent(); // The retry leases another session; this one may be broken
+        long backoff = Math.min(TestConfig.getInt("retry.backoffMs", 500) * (1L << (retryCount - 1)),
+                TestConfig.getInt("retry.backoffMaxMs", 5000));
+        logger.warn("Retrying {} ({} of {}) in {} ms after {} failure: {}", test, retryCount,
+                TestConfig.getInt("retry.max", 2), backoff, failureClass, firstLine(result.getThrowable()));
+        try {
+            Thread.sleep(backoff);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Classifies a failure by the exceptions in its cause chain.
+     *
+     * @param failure The failure of a test.
+     * @return The failure class.
+     */
+    public static FailureClass classify(Throwable failure) {
+        FailureClass found = FailureClass.OTHER;
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            String message = String.valueOf(cause.getMessage()).toLowerCase(Locale.ROOT);
+            if (cause instanceof AssertionError) {
+                return FailureClass.ASSERTION;
+            }
+            if (cause instanceof NoSuchSessionException || cause instanceof SessionNotCreatedException
+                    || cause instanceof UnreachableBrowserException || cause instanceof ConnectException
+                    || (cause instanceof WebDriverException && INFRASTRUCTURE_MESSAGES.stream().anyMatch(message::contains))) {
+                return FailureClass.INFRASTRUCTURE;
+            }
+            if (cause instanceof TimeoutException && NAVIGATION_MESSAGES.stream().anyMatch(message::contains)) {
+                found = FailureClass.NAVIGATION;
+            } else if (found == FailureClass.OTHER && (cause instanceof TimeoutException
+                    || cause instanceof NoSuchElementException || cause instanceof StaleElementReferenceException)) {
+                found = FailureClass.ELEMENT;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Records the final outcome of a test: passed or failed after its last attempt. Called by {@link TestListener}.
+     *
+     * @param result The result of the test's last attempt.
+     */
+    public static void recordOutcome(ITestResult result) {
+        flakes.computeIfAbsent(testName(result), key -> new FlakeRecord()).finished(result.isSuccess());
+    }
+
+    /**
+     * Builds a summary of the retries of this run: budget use, and every test that failed or was retried.
+     *
+     * @return The summary lines.
+     */
+    public static List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        budgetUsed.forEach((suite, used) -> summaries.add(String.format("Retries (%s): %d of %d used (retry.budget=%s)",
+                suite, used.get(), budgets.get(suite), TestConfig.get("retry.budget", "10%"))));
+        new TreeMap<>(flakes).forEach((test, record) -> {
+            if (record.retries.get() > 0 || record.failures.get() > 0) {
+                summaries.add("Retry stats " + test + ": " + record.describe());
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * Adds this run to the statistics file (retry.statsFile), a CSV of the counts per test over all runs, and starts
+     * a new run. The update holds a lock on a .lock file next to it, as shards running on the same machine share the
+     * file. Called by {@link TestListener} when the suite finishes.
+     *
+     * @throws IOException If the file cannot be read or written; the statistics of this run are kept.
+     */
+    public static synchronized void saveStatistics() throws IOException {
+        if (flakes.isEmpty()) {
+            return;
+        }
+        Path path = Path.of(TestConfig.get("retry.statsFile", "test-output/flake-stats.csv"));
+        Map<String, long[]> totals = new TreeMap<>();
+        try {
+            if (path.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+            }
+            try (FileChannel lockFile = FileChannel.open(path.resolveSibling(path.getFileName() + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockFile.lock();
+                try {
+                    if (Files.isRegularFile(path)) {
+                        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                            String[] fields = line.split(",");
+                            if (fields.length >= 6 && !"test".equals(fields[0])) {
+                                totals.put(fields[0], new long[]{Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                                        Long.parseLong(fields[3]), Long.parseLong(fields[4]), Long.parseLong(fields[5])});
+                            }
+                        }
+                    }
+                    flakes.forEach((test, record) -> {
+                        long[] counts = totals.computeIfAbsent(test, key -> new long[5]);
+                        counts[0] += record.runs.get();
+                        counts[1] += record.passes.get();
+                        counts[2] += record.failures.get();
+                        counts[3] += record.retries.get();
+                        counts[4] += record.flakyPasses.get();
+                    });
+                    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                        writer.write("test,runs,passes,failures,retries,flakyPasses,flakeRate");
+                        writer.newLine();
+                        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                            long[] counts = entry.getValue();
+                            writer.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%d,%.3f", entry.getKey(), counts[0], counts[1],
+                                    counts[2], counts[3], counts[4], counts[0] == 0 ? 0.0 : (double) counts[4] / counts[0]));
+                            writer.newLine();
+                        }
+                    }
+                    flakes.clear(); // This run is in the file; a second save adds nothing
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed flake statistics " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolves retry.budget for a suite: an absolute number of retries, or a percentage of its test methods.
+     */
+    private static int budget(int testMethods) {
+        String value = TestConfig.get("retry.budget", "10%");
+        try {
+            if (value.endsWith("%")) {
+                double percent = Double.parseDouble(value.substring(0, value.length() - 1).trim());
+                return Math.max(1, (int) Math.ceil(testMethods * percent / 100));
+            }
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid retry.budget '{}', using 10%", value);
+            return Math.max(1, (int) Math.ceil(testMethods * 0.1));
+        }
+    }
+
+    private static Set<FailureClass> retryableClasses() {
+        Set<FailureClass> classes = EnumSet.noneOf(FailureClass.class);
+        for (String name : TestConfig.get("retry.classes", "infrastructure,navigation").split(",")) {
+            if (!name.isBlank()) {
+                classes.add(FailureClass.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Names a test by class, method and browser, e.g. "LoginTest.validUserLogin [chrome]".
+     */
+    private static String testName(ITestResult result) {
+        String name = result.getTestClass().getRealClass().getSimpleName() + "." + result.getMethod().getMethodName();
+        String browser = result.getTestContext().getCurrentXmlTest().getParameter("browser");
+        return browser != null ? name + " [" + browser + "]" : name;
+    }
+
+    private static String firstLine(Throwable failure) {
+        if (failure == null || failure.getMessage() == null) {
+            return failure != null ? failure.getClass().getSimpleName() : "";
+        }
+        return failure.getClass().getSimpleName() + ": " + failure.getMessage().lines().findFirst().orElse("");
+    }
+
+    /**
+     * Outcomes of one test in this run. A flaky pass is a pass after at least one retry.
+     */
+    private static class FlakeRecord {
+        private final AtomicInteger runs = new AtomicInteger();
+        private final AtomicInteger passes = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger retries = new AtomicInteger();
+        private final AtomicInteger flakyPasses = new AtomicInteger();
+        // Failure classes of the failed attempts
+        private final Map<FailureClass, AtomicInteger> failureClasses = new ConcurrentHashMap<>();
+        // Retries already counted by earlier outcomes, so a flaky pass is only counted once per retried run
+        private int retriesAtLastOutcome;
+
+        private void failedAttempt(FailureClass failureClass) {
+            failureClasses.computeIfAbsent(failureClass, key -> new AtomicInteger()).incrementAndGet();
+        }
+
+        private synchronized void finished(boolean passed) {
+            runs.incrementAndGet();
+            boolean retried = retries.get() > retriesAtLastOutcome;
+            retriesAtLastOutcome = retries.get();
+            if (passed) {
+                passes.incrementAndGet();
+                if (retried) {
+                    flakyPasses.incrementAndGet();
+                }
+            } else {
+                failures.incrementAndGet();
+            }
+        }
+
+        private String describe() {
+            return String.format("runs=%d, passes=%d, failures=%d, retries=%d, flakyPasses=%d, failedAttempts=%s",
+                    runs.get(), passes.get(), failures.get(), retries.get(), flakyPasses.get(), new TreeMap<>(failureClasses));
+        }
     }
 }
@@ -0,0 +1,87 @@
+package utils;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import utils.RetryAnalyzer.FailureClass;
+
+import java.net.ConnectException;
+
+/**
+ * Unit tests for {@link RetryAnalyzer#classify(Throwable)}; they run without a browser.
+ */
+public class RetryAnalyzerTest {
+
+    /**
+     * Each kind of exception maps to its failure class.
+     */
+    @Test
+    public void classifiesSingleExceptions() {
+        Assert.assertEquals(RetryAnalyzer.classify(new AssertionError("expected [a] but found [b]")), FailureClass.ASSERTION);
+        Assert.assertEquals(RetryAnalyzer.classify(new NoSuchSessionException("invalid session id")), FailureClass.INFRASTRUCTURE);
+        Assert.assertEquals(RetryAnalyzer.classify(new WebDriverException("chrome not reachable")), FailureClass.INFRASTRUCTURE);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("timeout loading page")), FailureClass.NAVIGATION);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("Expected condition failed: waiting for visibility")),
+                FailureClass.ELEMENT);
+        Assert.assertEquals(RetryAnalyzer.classify(new NoSuchElementException("no such element")), FailureClass.ELEMENT);
+        Assert.assertEquals(RetryAnalyzer.classify(new StaleElementReferenceException("stale")), FailureClass.ELEMENT);
+    }
+
+    /**
+     * Failures that match no class, and a missing failure, are OTHER.
+     */
+    @Test
+    public void unknownFailuresAreOther() {
+        Assert.assertEquals(RetryAnalyzer.classify(new IllegalStateException("bug")), FailureClass.OTHER);
+        Assert.assertEquals(RetryAnalyzer.classify(new WebDriverException("unknown error")), FailureClass.OTHER);
+        Assert.assertEquals(RetryAnalyzer.classify(new WebDriverException((String) null)), FailureClass.OTHER);
+        Assert.assertEquals(RetryAnalyzer.classify(null), FailureClass.OTHER);
+    }
+
+    /**
+     * An infrastructure failure anywhere in the cause chain wins over the wrapping exceptions.
+     */
+    @Test
+    public void infrastructureCauseWins() {
+        Throwable failure = new RuntimeException("page action failed",
+                new TimeoutException("Expected condition failed", new ConnectException("Connection refused")));
+        Assert.assertEquals(RetryAnalyzer.classify(failure), FailureClass.INFRASTRUCTURE);
+    }
+
+    /**
+     * A navigation timeout deeper in the chain wins over an element failure that wraps it.
+     */
+    @Test
+    public void navigationCauseWinsOverElement() {
+        Throwable failure = new NoSuchElementException("no such element",
+                new TimeoutException("timed out receiving message from renderer"));
+        Assert.assertEquals(RetryAnalyzer.classify(failure), FailureClass.NAVIGATION);
+    }
+
+    /**
+     * An assertion failure is never retried, even when an infrastructure failure is further down its chain,
+     * and is found when wrapped.
+     */
+    @Test
+    public void assertionsAreFoundInTheChain() {
+        AssertionError assertion = new AssertionError("login failed", new NoSuchSessionException("session deleted"));
+        Assert.assertEquals(RetryAnalyzer.classify(assertion), FailureClass.ASSERTION);
+        Assert.assertEquals(RetryAnalyzer.classify(new RuntimeException("wrapped", new AssertionError("expected true"))),
+                FailureClass.ASSERTION);
+    }
+
+    /**
+     * Messages are matched case-insensitively.
+     */
+    @Test
+    public void messagesAreMatchedIgnoringCase() {
+        Assert.assertEquals(RetryAnalyzer.classify(new WebDriverException("Session Deleted because of page crash")),
+                FailureClass.INFRASTRUCTURE);
+        Assert.assertEquals(RetryAnalyzer.classify(new TimeoutException("Waiting for Document.readyState")),
+                FailureClass.NAVIGATION);
+    }
+}
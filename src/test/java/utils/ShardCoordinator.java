@@ -0,0 +1,245 @@
+package utils;
+
+import org.testng.TestNGException;
+import org.testng.xml.SuiteXmlParser;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlInclude;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits a suite into shards and runs them, from the command line:
+ * <ul>
+ *     <li>{@code plan <N> [suite.xml]}: assigns the test methods of the suite to N shards by their durations
+ *     in earlier runs and writes the plan to shard.dir (see {@link ShardPlan}). Run it before starting
+ *     shards on separate machines, each with -Dshard=i/N and the plan in its shard.dir.</li>
+ *     <li>{@code run <N> [suite.xml] [JVM options]}: plans, then runs the N shards as JVMs on this machine at the
+ *     same time, each with its results in shard.dir/shard-&lt;i&gt;, and merges them.</li>
+ *     <li>{@code merge}: combines the results in shard.dir (see {@link ShardMerger}).</li>
+ * </ul>
+ * The process exits with 1 if a shard has failed tests, crashed, or left no results. The "shards" profile of
+ * the pom runs it with the test classpath, e.g. {@code mvn test -Pshards -Dshards=4}.
+ */
+public class ShardCoordinator {
+
+    private static final String DEFAULT_SUITE = "src/test/resources/testng.xml";
+    // TestNG exit status bits (see org.testng.TestNG): 1 = a test failed, 2 = a test was skipped, 8 = no test ran
+    private static final int HAS_FAILURE = 1;
+
+    /**
+     * Runs a command.
+     *
+     * @param args The command and its arguments.
+     * @throws Exception If the suite cannot be read or a shard cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || (!"merge".equals(args[0]) && args.length < 2)) {
+            System.err.println("Usage: ShardCoordinator plan <N> [suite.xml] | run <N> [suite.xml] [JVM options] | merge");
+            System.exit(2);
+        }
+        Path directory = ShardPlan.directory();
+        switch (args[0]) {
+            case "plan":
+                plan(suite(args), Integer.parseInt(args[1]), directory);
+                break;
+            case "run":
+                int count = Integer.parseInt(args[1]);
+                plan(suite(args), count, directory);
+                boolean passed = run(suite(args), count, directory, Arrays.asList(args).subList(Math.min(3, args.length), args.length));
+                passed &= ShardMerger.merge(directory);
+                System.exit(passed ? 0 : 1);
+                break;
+            case "merge":
+                System.exit(ShardMerger.merge(directory) ? 0 : 1);
+                break;
+            default:
+                System.err.println("Unknown command " + args[0] + "; use plan, run or merge");
+                System.exit(2);
+        }
+    }
+
+    private static Path suite(String[] args) {
+        return Path.of(args.length > 2 && !args[2].isBlank() ? args[2] : DEFAULT_SUITE);
+    }
+
+    /**
+     * Assigns the test methods of a suite to shards and writes the plan.
+     *
+     * @param suite     The suite file.
+     * @param count     The number of shards.
+     * @param directory The shard directory the plan is written to.
+     * @throws IOException If the suite cannot be read or the plan cannot be written.
+     */
+    static void plan(Path suite, int count, Path directory) throws IOException {
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1, not " + count);
+        }
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        long fallback = DurationStore.defaultEstimate();
+        int unknown = 0;
+        for (String test : testNames(suite)) {
+            long estimate = DurationStore.estimate(test);
+            if (estimate < 0) {
+                estimate = fallback;
+                unknown++;
+            }
+            estimates.put(test, estimate);
+        }
+        List<Map<String, Long>> shards = ShardPlan.assign(estimates, count);
+        ShardPlan.write(directory.resolve(ShardPlan.PLAN_FILE), shards);
+        System.out.printf("Planned %d tests in %d shard(s) (%d without history, assumed %.1fs each): %s%n", estimates.size(),
+                count, unknown, fallback / 1000.0, directory.resolve(ShardPlan.PLAN_FILE));
+        for (int i = 0; i < shards.size(); i++) {
+            System.out.printf("  Shard %d/%d: %d tests, predicted %.1fs of work%n", i, count, shards.get(i).size(),
+                    shards.get(i).values().stream().mapToLong(Long::longValue).sum() / 1000.0);
+        }
+    }
+
+    /**
+     * Lists the test methods a suite runs, one per &lt;test&gt; block they appear in, named as in the
+     * {@link DurationStore}. Test methods are found like {@link BrowserMatrixListener} finds them, including the
+     * public methods of classes annotated with @Test. Methods named by &lt;include&gt; or &lt;exclude&gt; are honoured;
+     * groups are not, so a test left out by a group still has a place in the plan, which costs nothing.
+     *
+     * @param suite The suite file.
+     * @return The test names.
+     * @throws IOException If the suite cannot be parsed or names a class that does not exist.
+     */
+    static Set<String> testNames(Path suite) throws IOException {
+        Set<String> names = new TreeSet<>();
+        for (XmlSuite xmlSuite : parse(suite)) {
+            for (XmlTest xmlTest : xmlSuite.getTests()) {
+                String browser = xmlTest.getParameter("browser");
+                for (XmlClass xmlClass : xmlTest.getXmlClasses()) {
+                    Set<String> included = xmlClass.getIncludedMethods().stream().map(XmlInclude::getName).collect(Collectors.toSet());
+                    Class<?> testClass;
+                    try {
+                        testClass = Class.forName(xmlClass.getName());
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(suite + " names the class " + xmlClass.getName() + ", which is not on the classpath", e);
+                    }
+                    for (Method method : BrowserMatrixListener.testMethods(testClass)) {
+                        if (xmlClass.getExcludedMethods().contains(method.getName())
+                                || (!included.isEmpty() && !included.contains(method.getName()))) {
+                            continue;
+                        }
+                        names.add(DurationStore.testName(testClass, method.getName(), browser));
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Parses a suite file and the suite files it includes through &lt;suite-files&gt;, which are resolved
+     * against the directory of the including file.
+     *
+     * @param suite The suite file.
+     * @return The suite and the suites it includes.
+     * @throws IOException If a suite file cannot be read or parsed.
+     */
+    private static List<XmlSuite> parse(Path suite) throws IOException {
+        XmlSuite xmlSuite;
+        try (InputStream input = Files.newInputStream(suite)) {
+            xmlSuite = new SuiteXmlParser().parse(suite.toString(), input, false);
+        } catch (TestNGException e) {
+            throw new IOException("Failed to parse " + suite + ": " + e.getMessage(), e);
+        }
+        List<XmlSuite> suites = new ArrayList<>(List.of(xmlSuite));
+        for (String child : xmlSuite.getSuiteFiles()) {
+            suites.addAll(parse(suite.resolveSibling(child)));
+        }
+        return suites;
+    }
+
+    /**
+     * Runs every shard as a TestNG JVM on this machine and waits for all of them. Each shard writes its console
+     * output to shard-&lt;i&gt;/console.log, its report journal and screenshots to shard-&lt;i&gt;/ and its
+     * TestNG results to shard-&lt;i&gt;/testng/. The results of an earlier run are removed first.
+     *
+     * @param suite      The suite file.
+     * @param count      The number of shards.
+     * @param directory  The shard directory.
+     * @param jvmOptions Extra options for every shard JVM, e.g. -Dbrowser=chrome.
+     * @return True if no shard had a failed test or crashed.
+     * @throws IOException          If a shard cannot be started.
+     * @throws InterruptedException If the coordinator is interrupted while waiting.
+     */
+    static boolean run(Path suite, int count, Path directory, List<String> jvmOptions) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> entries = Files.list(directory)) {
+                for (Path entry : entries.filter(entry -> entry.getFileName().toString().matches("shard-\\d+")).toList()) {
+                    deleteRecursively(entry); // Results of an earlier run, possibly with more shards
+                }
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            Path shardDirectory = directory.resolve("shard-" + i);
+            Files.createDirectories(shardDirectory);
+            List<String> command = new ArrayList<>(List.of(java, "-cp", System.getProperty("java.class.path")));
+            command.addAll(jvmOptions.stream().filter(option -> !option.isBlank()).toList());
+            command.add("-Dshard=" + i + "/" + count);
+            command.add("-Dshard.dir=" + directory);
+            command.add("-Dreport.dir=" + shardDirectory);
+            command.add("-Dreport.mode=streaming"); // The merge step combines the journals
+            command.addAll(List.of("org.testng.TestNG", "-d", shardDirectory.resolve("testng").toString()));
+            // Thread counts the pom passes to surefire apply to every shard
+            forward(command, "threadCount", "-threadcount");
+            forward(command, "dataProviderThreadCount", "-dataproviderthreadcount");
+            command.add(suite.toString());
+            File log = shardDirectory.resolve("console.log").toFile();
+            processes.add(new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start());
+            System.out.println("Started shard " + i + "/" + count + ", output in " + log);
+        }
+        boolean passed = true;
+        for (int i = 0; i < count; i++) {
+            int status = processes.get(i).waitFor();
+            // Anything beyond the TestNG status bits is a crash, e.g. 134 after a JVM abort
+            boolean shardPassed = (status & HAS_FAILURE) == 0 && status < 16;
+            System.out.printf("Shard %d/%d finished with exit status %d%s%n", i, count, status, shardPassed ? "" : " (failed)");
+            passed &= shardPassed;
+        }
+        System.out.printf("All %d shard(s) finished after %.1fs%n", count, (System.nanoTime() - start) / 1e9);
+        return passed;
+    }
+
+    /**
+     * Passes a system property of the coordinator on to the TestNG command line of a shard.
+     */
+    private static void forward(List<String> command, String property, String option) {
+        String value = System.getProperty(property);
+        if (value != null && !value.isBlank()) {
+            command.add(option);
+            command.add(value.trim());
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> entries = Files.walk(path)) {
+            for (Path entry : entries.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link ShardCoordinator#testNames(Path)}; they run without a browser.
+ */
+public class ShardCoordinatorTest {
+
+    private Path directory;
+
+    /**
+     * Creates a directory for the suite files of a test.
+     *
+     * @throws IOException If the directory cannot be created.
+     */
+    @BeforeMethod
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("suites");
+        directory.toFile().deleteOnExit();
+    }
+
+    /**
+     * Public methods of a class annotated with @Test are tests; disabled tests and configuration methods are not.
+     *
+     * @throws IOException If the suite cannot be written or parsed.
+     */
+    @Test
+    public void findsClassLevelTests() throws IOException {
+        Path suite = suite("suite.xml", "<test name=\"Chrome\">\n"
+                + "    <parameter name=\"browser\" value=\"chrome\"/>\n"
+                + "    <classes><class name=\"utils.ShardCoordinatorTest$ClassLevelSample\"/></classes>\n"
+                + "</test>\n");
+        Assert.assertEquals(ShardCoordinator.testNames(suite),
+                Set.of("ClassLevelSample.first [chrome]", "ClassLevelSample.second [chrome]"));
+    }
+
+    /**
+     * Includes and excludes narrow the methods of a class, per &lt;test&gt;; included suite files are read too.
+     *
+     * @throws IOException If the suites cannot be written or parsed.
+     */
+    @Test
+    public void honoursIncludesExcludesAndSuiteFiles() throws IOException {
+        suite("child.xml", "<test name=\"Edge\">\n"
+                + "    <parameter name=\"browser\" value=\"edge\"/>\n"
+                + "    <classes><class name=\"utils.ShardCoordinatorTest$ClassLevelSample\">\n"
+                + "        <methods><exclude name=\"first\"/></methods>\n"
+                + "    </class></classes>\n"
+                + "</test>\n");
+        Path suite = suite("parent.xml", "<suite-files><suite-file path=\"child.xml\"/></suite-files>\n"
+                + "<test name=\"Firefox\">\n"
+                + "    <parameter name=\"browser\" value=\"firefox\"/>\n"
+                + "    <classes><class name=\"utils.ShardCoordinatorTest$ClassLevelSample\">\n"
+                + "        <methods><include name=\"first\"/></methods>\n"
+                + "    </class></classes>\n"
+                + "</test>\n");
+        Assert.assertEquals(ShardCoordinator.testNames(suite),
+                Set.of("ClassLevelSample.first [firefox]", "ClassLevelSample.second [edge]"));
+    }
+
+    /**
+     * A class that is not on the classpath fails the plan.
+     *
+     * @throws IOException If the suite cannot be written.
+     */
+    @Test
+    public void rejectsUnknownClasses() throws IOException {
+        Path suite = suite("missing.xml", "<test name=\"Chrome\">\n"
+                + "    <classes><class name=\"utils.NoSuchTest\"/></classes>\n"
+                + "</test>\n");
+        Assert.expectThrows(IOException.class, () -> ShardCoordinator.testNames(suite));
+    }
+
+    private Path suite(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, "<!DOCTYPE suite SYSTEM \"https://testng.org/testng-1.0.dtd\">\n"
+                + "<suite name=\"" + name + "\">\n" + content + "</suite>\n", StandardCharsets.UTF_8);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * A test class with a class-level @Test, as read by {@link ShardCoordinator}; not run itself.
+     */
+    @Test
+    public static class ClassLevelSample {
+
+        @BeforeMethod
+        public void setUp() {
+        }
+
+        public void first() {
+        }
+
+        public void second() {
+        }
+
+        @Test(enabled = false)
+        public void disabled() {
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Combines the results of the shards in shard.dir into one set of results, as if the suite had run in a single JVM:
+ * <ul>
+ *     <li>testng-results.xml: the &lt;suite&gt; elements of every shard, with the counts of the root element
+ *     added up, for CI test result publishers.</li>
+ *     <li>ExtentReport.jsonl and ExtentReport.html: the report journals of every shard (report.mode=streaming)
+ *     as one journal, rendered to an Extent report by {@link ReportRenderer}. Screenshot paths are rewritten to stay valid from
+ *     shard.dir, metric lines are prefixed with their shard, and the run only counts as complete if every shard
+ *     finished.</li>
+ *     <li>The durations the shards measured, appended to durations.file for the next plan
+ *     (shards do not write durations.file themselves, as they may run on other machines).</li>
+ * </ul>
+ * Each shard's results are expected in shard-&lt;i&gt;/ below shard.dir, with the TestNG results in shard-&lt;i&gt;/testng/.
+ */
+public class ShardMerger {
+
+    private static final Gson gson = new Gson();
+    // Name of the merged journal and report in shard.dir
+    private static final String REPORT_NAME = "ExtentReport";
+
+    /**
+     * Merges the results of every shard below a directory.
+     *
+     * @param directory The shard directory.
+     * @return True if every planned shard left complete results.
+     * @throws IOException If results cannot be read or written.
+     */
+    public static boolean merge(Path directory) throws IOException {
+        List<Path> shards = shardDirectories(directory);
+        if (shards.isEmpty()) {
+            throw new IOException("No shard results (shard-<i> directories) in " + directory.toAbsolutePath());
+        }
+        boolean complete = mergeTestNgResults(shards, directory.resolve("testng-results.xml"));
+        Path journal = directory.resolve(REPORT_NAME + ".jsonl");
+        complete &= mergeJournals(directory, shards, journal);
+        Path report = directory.resolve(REPORT_NAME + ".html");
+        ReportRenderer.render(journal, report);
+        System.out.println("Merged the results of " + shards.size() + " shard(s): " + report.toAbsolutePath());
+        int planned = plannedShards(directory);
+        if (planned > shards.size()) {
+            System.err.println("Only " + shards.size() + " of " + planned + " planned shards left results");
+            complete = false;
+        }
+        return complete;
+    }
+
+    /**
+     * Adds the &lt;suite&gt; elements of every shard's testng-results.xml to one document and sums the counts
+     * (total, passed, failed, skipped, ...) of the root element.
+     *
+     * @param shards The shard directories.
+     * @param target The merged file.
+     * @return True if every shard has a testng-results.xml.
+     * @throws IOException If a file cannot be read or written.
+     */
+    static boolean mergeTestNgResults(List<Path> shards, Path target) throws IOException {
+        try {
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document merged = builder.newDocument();
+            Element root = (Element) merged.appendChild(merged.createElement("testng-results"));
+            Element output = (Element) root.appendChild(merged.createElement("reporter-output"));
+            boolean complete = true;
+            for (Path shard : shards) {
+                Path results = shard.resolve("testng").resolve("testng-results.xml");
+                if (!Files.isRegularFile(results)) {
+                    System.err.println("No TestNG results in " + results);
+                    complete = false;
+                    continue;
+                }
+                Element shardRoot = builder.parse(results.toFile()).getDocumentElement();
+                NamedNodeMap counts = shardRoot.getAttributes();
+                for (int i = 0; i < counts.getLength(); i++) {
+                    Node count = counts.item(i);
+                    long previous = root.hasAttribute(count.getNodeName()) ? Long.parseLong(root.getAttribute(count.getNodeName())) : 0;
+                    root.setAttribute(count.getNodeName(), String.valueOf(previous + Long.parseLong(count.getNodeValue().trim())));
+                }
+                NodeList children = shardRoot.getChildNodes();
+                for (int i = 0; i < children.getLength(); i++) {
+                    Node child = children.item(i);
+                    if ("suite".equals(child.getNodeName())) {
+                        root.appendChild(merged.importNode(child, true));
+                    } else if ("reporter-output".equals(child.getNodeName())) {
+                        NodeList lines = child.getChildNodes();
+                        for (int j = 0; j < lines.getLength(); j++) {
+                            output.appendChild(merged.importNode(lines.item(j), true));
+                        }
+                    }
+                }
+            }
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.transform(new DOMSource(merged), new StreamResult(target.toFile()));
+            return complete;
+        } catch (ParserConfigurationException | SAXException | TransformerException | NumberFormatException e) {
+            throw new IOException("Failed to merge the TestNG results into " + target + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Streams the journals of every shard into one journal, record by record, and appends the durations of
+     * the tests to the {@link DurationStore}.
+     *
+     * @param directory The shard directory, which the merged report is written to.
+     * @param shards    The shard directories.
+     * @param target    The merged journal.
+     * @return True if every shard has a journal that reached the end of its suite.
+     * @throws IOException If a journal cannot be read or written.
+     */
+    static boolean mergeJournals(Path directory, List<Path> shards, Path target) throws IOException {
+        List<Path> journals = new ArrayList<>();
+        boolean complete = true;
+        for (Path shard : shards) {
+            Optional<Path> journal = latestJournal(shard);
+            if (journal.isPresent()) {
+                journals.add(journal.get());
+            } else {
+                System.err.println("No report journal in " + shard + "; run the shards with report.mode=streaming");
+                complete = false;
+            }
+        }
+        JsonObject suiteStart = null;
+        for (Path journal : journals) {
+            JsonObject first = firstRecord(journal);
+            if (first != null && "suite-start".equals(text(first, "event"))
+                    && (suiteStart == null || first.get("time").getAsLong() < suiteStart.get("time").getAsLong())) {
+                suiteStart = first;
+            }
+        }
+        int ended = 0;
+        long endTime = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            if (suiteStart != null) {
+                writeRecord(out, suiteStart);
+            }
+            for (Path journal : journals) {
+                Path shard = journal.getParent();
+                String label = shard.getFileName().toString();
+                String prefix = directory.relativize(shard).toString().replace('\\', '/') + "/";
+                boolean shardEnded = false;
+                try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        JsonObject record = parse(line);
+                        if (record == null) {
+                            continue;
+                        }
+                        switch (text(record, "event")) {
+                            case "test":
+                                if (record.has("screenshot")) {
+                                    record.addProperty("screenshot", prefix + text(record, "screenshot"));
+                                }
+                                if (record.has("slot")) {
+                                    DurationStore.record(DurationStore.testName(text(record, "class"), text(record, "name"),
+                                            text(record, "browser")), record.get("slot").getAsLong());
+                                }
+                                writeRecord(out, record);
+                                break;
+                            case "metric":
+                                record.addProperty(record.has("name") ? "name" : "text",
+                                        "[" + label + "] " + text(record, record.has("name") ? "name" : "text"));
+                                writeRecord(out, record);
+                                break;
+                            case "suite-end":
+                                shardEnded = true;
+                                endTime = Math.max(endTime, record.get("time").getAsLong());
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                }
+                if (shardEnded) {
+                    ended++;
+                } else {
+                    System.err.println("The report journal of " + label + " ends before its suite did: " + journal);
+                }
+            }
+            if (complete && ended == journals.size() && suiteStart != null) {
+                JsonObject suiteEnd = new JsonObject();
+                suiteEnd.addProperty("event", "suite-end");
+                suiteEnd.addProperty("suite", text(suiteStart, "suite"));
+                suiteEnd.addProperty("time", endTime);
+                writeRecord(out, suiteEnd);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lists the shard-&lt;i&gt; directories, in shard order.
+     */
+    private static List<Path> shardDirectories(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            return new ArrayList<>(entries
+                    .filter(entry -> Files.isDirectory(entry) && entry.getFileName().toString().matches("shard-\\d+"))
+                    .sorted(Comparator.comparingInt(entry -> Integer.parseInt(entry.getFileName().toString().substring("shard-".length()))))
+                    .toList());
+        }
+    }
+
+    /**
+     * Returns the most recent report journal of a shard; the names carry a timestamp.
+     */
+    private static Optional<Path> latestJournal(Path shard) throws IOException {
+        try (Stream<Path> entries = Files.list(shard)) {
+            return entries.filter(entry -> entry.getFileName().toString().matches(REPORT_NAME + "_.*\\.jsonl"))
+                    .max(Comparator.comparing(entry -> entry.getFileName().toString()));
+        }
+    }
+
+    /**
+     * Reads the number of shards from the header of the plan, if there is one.
+     */
+    private static int plannedShards(Path directory) throws IOException {
+        Path plan = directory.resolve(ShardPlan.PLAN_FILE);
+        if (Files.isRegularFile(plan)) {
+            try (BufferedReader reader = Files.newBufferedReader(plan, StandardCharsets.UTF_8)) {
+                String header = reader.readLine();
+                if (header != null && header.startsWith("# shards=")) {
+                    return Integer.parseInt(header.substring("# shards=".length()).trim());
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static JsonObject firstRecord(Path journal) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            return line != null ? parse(line) : null;
+        }
+    }
+
+    /**
+     * Parses a journal line; blank lines and lines cut off by a crash give null.
+     */
+    private static JsonObject parse(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(line, JsonObject.class);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static void writeRecord(BufferedWriter out, JsonObject record) throws IOException {
+        out.write(gson.toJson(record));
+        out.newLine();
+    }
+
+    private static String text(JsonObject record, String name) {
+        return record.has(name) && !record.get(name).isJsonNull() ? record.get(name).getAsString() : "";
+    }
+}
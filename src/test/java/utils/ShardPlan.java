@@ -0,0 +1,216 @@
+package utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestNGMethod;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Assignment of the tests of a suite to N shards, each run by its own JVM, possibly on its own machine.
+ * {@link ShardCoordinator} writes the plan to plan.tsv in shard.dir: tests are handed out longest first, each to the
+ * shard with the least predicted work, by the durations of earlier runs (see {@link DurationStore}). A JVM started
+ * with shard=i/N runs the tests the plan gives to shard i (see {@link ShardSelector}). Tests the plan does not know,
+ * e.g. tests added since it was written, go to a shard chosen by a hash of their name, so every shard agrees
+ * on them without talking to each other.
+ */
+public class ShardPlan {
+
+    // Logger for logging messages related to sharding
+    private static final Logger logger = LoggerFactory.getLogger(ShardPlan.class);
+    // Name of the plan file in shard.dir
+    static final String PLAN_FILE = "plan.tsv";
+
+    // Plan of this JVM; loaded on first use
+    private static ShardPlan current;
+    private static boolean loaded;
+
+    private final int index;
+    private final int count;
+    // Shard of every planned test
+    private final Map<String, Integer> owners;
+
+    private ShardPlan(int index, int count, Map<String, Integer> owners) {
+        this.index = index;
+        this.count = count;
+        this.owners = owners;
+    }
+
+    /**
+     * Returns the plan of this JVM, if it runs a shard.
+     *
+     * @return The plan, or null if shard is not set.
+     * @throws IllegalArgumentException If shard is not of the form i/N.
+     */
+    public static synchronized ShardPlan current() {
+        if (!loaded) {
+            String shard = TestConfig.get("shard", "").trim();
+            if (!shard.isEmpty()) {
+                int[] parsed = parse(shard);
+                current = new ShardPlan(parsed[0], parsed[1], read(directory().resolve(PLAN_FILE), parsed[1]));
+                logger.info("Running shard {}/{}, {} planned tests", parsed[0], parsed[1], current.owners.size());
+            }
+            loaded = true;
+        }
+        return current;
+    }
+
+    /**
+     * Parses a shard index.
+     *
+     * @param shard The shard, e.g. "0/4" for the first of four shards.
+     * @return The index and the number of shards.
+     * @throws IllegalArgumentException If the shard is not of the form i/N with 0 &lt;= i &lt; N.
+     */
+    static int[] parse(String shard) {
+        String[] parts = shard.split("/", -1);
+        int index;
+        int count;
+        try {
+            if (parts.length != 2) {
+                throw new NumberFormatException();
+            }
+            index = Integer.parseInt(parts[0].trim());
+            count = Integer.parseInt(parts[1].trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("shard must look like i/N, e.g. 0/4, not " + shard);
+        }
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("shard " + shard + " is out of range; use 0/N up to (N-1)/N");
+        }
+        return new int[]{index, count};
+    }
+
+    /**
+     * Returns the directory shared by the coordinator and the shards: the plan, and a sub-directory per shard
+     * with its results.
+     *
+     * @return The shard directory (shard.dir).
+     */
+    static Path directory() {
+        return Path.of(TestConfig.get("shard.dir", "test-output/shards"));
+    }
+
+    /**
+     * Decides whether a test method runs in this shard.
+     *
+     * @param method The test method, with the &lt;test&gt; it runs in.
+     * @return True if the plan gives it to this shard.
+     */
+    public boolean owns(ITestNGMethod method) {
+        String browser = method.getXmlTest() != null ? method.getXmlTest().getParameter("browser") : null;
+        return ownerOf(DurationStore.testName(method.getRealClass(), method.getMethodName(), browser)) == index;
+    }
+
+    /**
+     * Returns the shard of a test: the planned one, or one chosen by the hash of its name.
+     *
+     * @param test The test name.
+     * @return The shard index.
+     */
+    int ownerOf(String test) {
+        Integer owner = owners.get(test);
+        return owner != null ? owner : Math.floorMod(test.hashCode(), count);
+    }
+
+    /**
+     * Hands out tests to shards, longest first, each to the shard with the least predicted work so far.
+     *
+     * @param estimates The expected duration of every test in milliseconds.
+     * @param count     The number of shards.
+     * @return The tests of every shard, with their estimates, in the order they were handed out.
+     */
+    static List<Map<String, Long>> assign(Map<String, Long> estimates, int count) {
+        List<Map<String, Long>> shards = new ArrayList<>();
+        long[] loads = new long[count];
+        // Least loaded shard first; the lower index on ties, so the same input always gives the same plan
+        PriorityQueue<Integer> shardsByLoad = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(shard -> loads[shard]).thenComparingInt(shard -> shard));
+        for (int i = 0; i < count; i++) {
+            shards.add(new LinkedHashMap<>());
+            shardsByLoad.add(i);
+        }
+        estimates.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .forEach(test -> {
+                    int shard = shardsByLoad.poll();
+                    shards.get(shard).put(test.getKey(), test.getValue());
+                    loads[shard] += test.getValue();
+                    shardsByLoad.add(shard);
+                });
+        return shards;
+    }
+
+    /**
+     * Writes a plan as "shard&lt;TAB&gt;test&lt;TAB&gt;estimate" lines after a "# shards=N" header.
+     * The file is replaced atomically, so a shard never reads half a plan.
+     *
+     * @param path   The plan file.
+     * @param shards The tests of every shard, as returned by {@link #assign(Map, int)}.
+     * @throws IOException If the plan cannot be written.
+     */
+    static void write(Path path, List<Map<String, Long>> shards) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), "plan", ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write("# shards=" + shards.size());
+            writer.newLine();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                for (Map.Entry<String, Long> test : shards.get(shard).entrySet()) {
+                    writer.write(shard + "\t" + test.getKey() + "\t" + test.getValue());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the shard of every planned test. A missing plan, or one made for another number of shards, is ignored:
+     * every test is then placed by the hash of its name.
+     *
+     * @param path  The plan file.
+     * @param count The number of shards of this run.
+     * @return The shard of every planned test; empty if the plan is missing or does not fit.
+     */
+    private static Map<String, Integer> read(Path path, int count) {
+        Map<String, Integer> owners = new HashMap<>();
+        if (!Files.isRegularFile(path)) {
+            logger.warn("No shard plan at {}; tests are placed by the hash of their name", path);
+            return owners;
+        }
+        try {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (line.startsWith("# shards=")) {
+                    int planned = Integer.parseInt(line.substring("# shards=".length()).trim());
+                    if (planned != count) {
+                        logger.warn("The shard plan {} is for {} shards, not {}; tests are placed by the hash of their name",
+                                path, planned, count);
+                        return new HashMap<>();
+                    }
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length >= 2) {
+                    owners.put(fields[1], Integer.parseInt(fields[0]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Failed to read the shard plan {}; tests are placed by the hash of their name: {}", path, e.getMessage());
+            return new HashMap<>();
+        }
+        return owners;
+    }
+}
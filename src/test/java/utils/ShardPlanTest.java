@@ -0,0 +1,125 @@
+package utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link ShardPlan#parse(String)} and {@link ShardPlan#assign(Map, int)}; they run without a browser.
+ */
+public class ShardPlanTest {
+
+    /**
+     * A shard is an index and a count, with spaces allowed around them.
+     */
+    @Test
+    public void parsesShards() {
+        Assert.assertEquals(ShardPlan.parse("0/4"), new int[]{0, 4});
+        Assert.assertEquals(ShardPlan.parse("3/4"), new int[]{3, 4});
+        Assert.assertEquals(ShardPlan.parse(" 1 / 2 "), new int[]{1, 2});
+        Assert.assertEquals(ShardPlan.parse("0/1"), new int[]{0, 1});
+    }
+
+    /**
+     * Malformed shards and indexes outside 0 to N-1 are rejected.
+     */
+    @Test
+    public void rejectsInvalidShards() {
+        for (String shard : new String[]{"4/4", "-1/4", "0/0", "1/-2", "1", "a/b", "", "1/2/3x"}) {
+            Assert.expectThrows(IllegalArgumentException.class, () -> ShardPlan.parse(shard));
+        }
+    }
+
+    /**
+     * Tests are handed out longest first, each to the shard with the least work so far.
+     */
+    @Test
+    public void assignsLongestFirstToTheLeastLoadedShard() {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        estimates.put("e", 3L);
+        estimates.put("a", 5L);
+        estimates.put("c", 3L);
+        estimates.put("b", 4L);
+        estimates.put("d", 3L);
+        List<Map<String, Long>> shards = ShardPlan.assign(estimates, 2);
+        // a(5) -> 0, b(4) -> 1, c(3) -> 1 (7), d(3) -> 0 (8), e(3) -> 1 (10)
+        Assert.assertEquals(List.copyOf(shards.get(0).keySet()), List.of("a", "d"));
+        Assert.assertEquals(List.copyOf(shards.get(1).keySet()), List.of("b", "c", "e"));
+        Assert.assertEquals(shards.get(1).get("b"), Long.valueOf(4));
+    }
+
+    /**
+     * Equal estimates are handed out by name, and equally loaded shards by index, so the plan does not depend on
+     * the order the tests were found in.
+     */
+    @Test
+    public void breaksTiesByNameAndIndex() {
+        Map<String, Long> forward = new LinkedHashMap<>();
+        Map<String, Long> backward = new LinkedHashMap<>();
+        for (String test : List.of("x", "y", "z", "w")) {
+            forward.put(test, 1L);
+        }
+        for (String test : List.of("w", "z", "y", "x")) {
+            backward.put(test, 1L);
+        }
+        List<Map<String, Long>> shards = ShardPlan.assign(forward, 3);
+        Assert.assertEquals(List.copyOf(shards.get(0).keySet()), List.of("w", "z"));
+        Assert.assertEquals(List.copyOf(shards.get(1).keySet()), List.of("x"));
+        Assert.assertEquals(List.copyOf(shards.get(2).keySet()), List.of("y"));
+        Assert.assertEquals(ShardPlan.assign(backward, 3), shards);
+    }
+
+    /**
+     * Every shard is in the plan, even without tests, and every test is in exactly one shard.
+     */
+    @Test
+    public void moreShardsThanTests() {
+        List<Map<String, Long>> shards = ShardPlan.assign(Map.of("only", 10L), 3);
+        Assert.assertEquals(shards.size(), 3);
+        Assert.assertEquals(shards.get(0), Map.of("only", 10L));
+        Assert.assertTrue(shards.get(1).isEmpty());
+        Assert.assertTrue(shards.get(2).isEmpty());
+        Assert.assertEquals(ShardPlan.assign(Map.of(), 2), List.of(Map.of(), Map.of()));
+    }
+
+    /**
+     * One long test is not split: the shard holding it has the longest predicted work, and the others share the rest.
+     */
+    @Test
+    public void longTestFillsAShardOnItsOwn() {
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        estimates.put("long", 100L);
+        for (int i = 0; i < 10; i++) {
+            estimates.put("short" + i, 10L);
+        }
+        List<Map<String, Long>> shards = ShardPlan.assign(estimates, 2);
+        Assert.assertEquals(shards.get(0), Map.of("long", 100L));
+        Assert.assertEquals(shards.get(1).size(), 10);
+    }
+
+    /**
+     * The plan file has a header with the number of shards and a line per test.
+     *
+     * @throws IOException If the plan cannot be written.
+     */
+    @Test
+    public void writesThePlan() throws IOException {
+        Path directory = Files.createTempDirectory("shards");
+        Path plan = directory.resolve(ShardPlan.PLAN_FILE);
+        Map<String, Long> estimates = new LinkedHashMap<>();
+        estimates.put("A.one [chrome]", 20L);
+        estimates.put("A.two [chrome]", 10L);
+        ShardPlan.write(plan, ShardPlan.assign(estimates, 2));
+        Assert.assertEquals(Files.readAllLines(plan, StandardCharsets.UTF_8),
+                List.of("# shards=2", "0\tA.one [chrome]\t20", "1\tA.two [chrome]\t10"));
+        Files.delete(plan);
+        Files.delete(directory);
+    }
+}
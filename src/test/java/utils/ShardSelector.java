@@ -0,0 +1,29 @@
+package utils;
+
+import org.testng.IMethodSelector;
+import org.testng.IMethodSelectorContext;
+import org.testng.ITestNGMethod;
+
+import java.util.List;
+
+/**
+ * TestNG method selector that leaves out the tests another shard runs, when the JVM is started with shard=i/N
+ * (see {@link ShardPlan}). Registered in testng.xml with a priority below TestNG's own selector, so a test of
+ * another shard is excluded outright and every other test is left to the include/exclude rules of testng.xml.
+ */
+public class ShardSelector implements IMethodSelector {
+
+    @Override
+    public boolean includeMethod(IMethodSelectorContext context, ITestNGMethod method, boolean isTestMethod) {
+        ShardPlan plan = ShardPlan.current();
+        if (isTestMethod && plan != null && !plan.owns(method)) {
+            context.setStopped(true);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void setTestMethods(List<ITestNGMethod> testMethods) {
+    }
+}
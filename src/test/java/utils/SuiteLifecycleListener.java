@@ -0,0 +1,28 @@
+package utils;
+
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+/**
+ * Stops the servers the tests of a suite shared once the suite finishes: the local application server, the replay
+ * proxy and, with grid.standalone, the pooled sessions and their standalone Grid server, in that order, so no session
+ * outlives its server. Every stop does nothing if the server is not running, so the listener may be registered
+ * more than once. Registered as a listener in testng.xml and on the test classes.
+ */
+public class SuiteLifecycleListener implements ISuiteListener {
+
+    /**
+     * Called when the suite finishes.
+     *
+     * @param suite The suite that was run.
+     */
+    @Override
+    public void onFinish(ISuite suite) {
+        LocalAppServer.stop(); // Every test has finished with the application
+        ReplayProxy.stop(); // Closes the proxy ports and the archive
+        if (GridServer.isEnabled()) {
+            WebDriverPool.shutdownAll(); // Quit the pooled sessions while their standalone server is still up
+            GridServer.stop();
+        }
+    }
+}
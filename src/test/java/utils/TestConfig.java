@@ -0,0 +1,85 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class TestConfig {
+
+    // Logger for logging messages related to configuration loading
+    private static final Logger logger = LoggerFactory.getLogger(TestConfig.class);
+    // Name of the properties file on the test classpath
+    private static final String CONFIG_FILE = "test-config.properties";
+    // Properties loaded once per JVM
+    private static final Properties properties = loadProperties();
+
+    /**
+     * Retrieves a configuration value. System properties (e.g. -Dpool.size=4) take
+     * precedence over the values defined in test-config.properties.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value returned when the key is not defined anywhere.
+     * @return The configured value, or the default value.
+     */
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            value = properties.getProperty(key);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Retrieves an integer configuration value.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value returned when the key is not defined or not a number.
+     * @return The configured integer value, or the default value.
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer '{}' for configuration key '{}', using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Retrieves a boolean configuration value.
+     *
+     * @param key          The configuration key.
+     * @param defaultValue The value returned when the key is not defined.
+     * @return The configured boolean value, or the default value.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Loads test-config.properties from the classpath.
+     *
+     * @return The loaded properties, empty if the file could not be read.
+     */
+    private static Properties loadProperties() {
+        Properties loaded = new Properties();
+        try (InputStream input = TestConfig.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (input != null) {
+                loaded.load(input);
+            } else {
+                logger.warn("{} not found on the classpath, using defaults", CONFIG_FILE);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to load {}: {}", CONFIG_FILE, e.getMessage());
+        }
+        return loaded;
+    }
+}
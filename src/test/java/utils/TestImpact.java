@@ -0,0 +1,450 @@
+package utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.openqa.selenium.By;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Test impact analysis. While recording (impact.mode=record or select), every test's footprint is collected:
+ * its class hierarchy, the page objects it obtains from its {@link DriverSession}, and the locators its driver
+ * resolves (see {@link ImpactListener}). Footprints and outcomes are saved to impact.file together with the commit
+ * they were recorded at.
+ * <p>
+ * With impact.mode=select, the source changes since that commit (git diff, including uncommitted and untracked files)
+ * decide which tests run:
+ * <ul>
+ *     <li>A changed class under impact.paths affects every test that used it. When only locator fields of a page
+ *     changed, only the tests that resolved one of the old or new locators are affected.</li>
+ *     <li>Any other change (framework code, configuration, the build) affects every test; impact.ignore lists
+ *     files that never do.</li>
+ *     <li>Tests that failed in the recorded run, and tests that are not in the map, always run.</li>
+ * </ul>
+ * The other tests are deselected by {@link ImpactSelector}, and their green result carries over.
+ */
+public class TestImpact {
+
+    // Logger for logging messages related to test impact analysis
+    private static final Logger logger = LoggerFactory.getLogger(TestImpact.class);
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    // A locator field declaration, e.g. private final By loginButton = By.id("login-button");
+    private static final Pattern LOCATOR_FIELD = Pattern.compile(
+            "^\\s*(?:(?:private|protected|public|static|final)\\s+)*By\\s+\\w+\\s*=\\s*By\\.(\\w+)\\(\\s*\"((?:[^\"\\\\]|\\\\.)*)\"\\s*\\)\\s*;\\s*$");
+
+    public enum Mode {OFF, RECORD, SELECT}
+
+    // Footprint of the test running on the current thread, while recording
+    private static final ThreadLocal<Footprint> current = new ThreadLocal<>();
+    // Footprints of the tests run in this JVM, merged over browsers and attempts
+    private static final Map<String, Footprint> recorded = new HashMap<>();
+    // Map saved by the last recording run; loaded on first use
+    private static ImpactMap map;
+    // Tests deselected because no change affects them; computed on first use
+    private static Set<String> carriedOver;
+    // Number of tests asked about by the selector, for the summary
+    private static final Set<String> considered = new TreeSet<>();
+
+    /**
+     * Returns the configured impact mode.
+     *
+     * @return The mode; OFF unless impact.mode is record or select.
+     */
+    public static Mode mode() {
+        String mode = TestConfig.get("impact.mode", "off").trim();
+        return "record".equalsIgnoreCase(mode) ? Mode.RECORD : "select".equalsIgnoreCase(mode) ? Mode.SELECT : Mode.OFF;
+    }
+
+    public static boolean isRecording() {
+        return mode() != Mode.OFF;
+    }
+
+    /**
+     * Names a test method by its fully qualified class and method name.
+     *
+     * @param testClass The test class.
+     * @param method    The method name.
+     * @return The test name, e.g. "my.project.Test.LoginTest.validUserLogin".
+     */
+    public static String testName(Class<?> testClass, String method) {
+        return testClass.getName() + "." + method;
+    }
+
+    /**
+     * Starts the footprint of a test on the current thread, unless one is already open (a retried attempt).
+     *
+     * @param testClass The test class; it and its superclasses are part of the footprint.
+     */
+    public static void begin(Class<?> testClass) {
+        if (!isRecording() || current.get() != null) {
+            return;
+        }
+        Footprint footprint = new Footprint();
+        for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            footprint.classes.add(type.getName());
+        }
+        current.set(footprint);
+    }
+
+    /**
+     * Adds a page object class to the footprint of the test on the current thread.
+     *
+     * @param pageClass The page object class.
+     */
+    public static void usePage(Class<?> pageClass) {
+        Footprint footprint = current.get();
+        if (footprint != null) {
+            footprint.classes.add(pageClass.getName());
+        }
+    }
+
+    /**
+     * Adds a locator to the footprint of the test on the current thread.
+     *
+     * @param locator The locator in its W3C form, e.g. "css selector: #login-button".
+     */
+    public static void useLocator(String locator) {
+        Footprint footprint = current.get();
+        if (footprint != null) {
+            footprint.locators.add(locator);
+        }
+    }
+
+    /**
+     * Closes the footprint of the test on the current thread and merges it with the other runs of the test.
+     * The test only counts as green if every run of it passed.
+     *
+     * @param result The final result of the test.
+     */
+    public static void end(ITestResult result) {
+        Footprint footprint = current.get();
+        current.remove();
+        if (footprint == null) {
+            return;
+        }
+        footprint.passed = result.getStatus() == ITestResult.SUCCESS;
+        String name = testName(result.getTestClass().getRealClass(), result.getMethod().getMethodName());
+        synchronized (recorded) {
+            recorded.merge(name, footprint, Footprint::merge);
+        }
+    }
+
+    /**
+     * Decides whether a test method runs. Outside of select mode, every test runs.
+     *
+     * @param method The test method.
+     * @return False if no change since the recorded run affects the test and it passed then.
+     */
+    public static synchronized boolean isSelected(ITestNGMethod method) {
+        if (mode() != Mode.SELECT) {
+            return true;
+        }
+        if (carriedOver == null) {
+            carriedOver = select();
+        }
+        String name = testName(method.getRealClass(), method.getMethodName());
+        considered.add(name);
+        return !carriedOver.contains(name);
+    }
+
+    /**
+     * Compares the recorded footprints with the changes since the recorded commit.
+     *
+     * @return The tests that can be carried over.
+     */
+    private static Set<String> select() {
+        Set<String> unaffected = new TreeSet<>();
+        ImpactMap impactMap = map();
+        if (impactMap.commit == null || impactMap.tests.isEmpty()) {
+            logger.warn("No impact map in {}; running every test. Record one with -Dimpact.mode=record", path());
+            return unaffected;
+        }
+        Map<String, Change> changes = changesSince(impactMap.commit);
+        if (changes == null) {
+            return unaffected;
+        }
+        for (Map.Entry<String, Change> change : changes.entrySet()) {
+            if (change.getValue().everything) {
+                logger.info("{} changed since {}; running every test", change.getKey(), shortCommit(impactMap.commit));
+                return unaffected;
+            }
+        }
+        impactMap.tests.forEach((test, footprint) -> {
+            if (footprint.passed && !isAffected(footprint, changes)) {
+                unaffected.add(test);
+            }
+        });
+        logger.info("{} class(es) changed since {}; {} of {} recorded tests are unaffected",
+                changes.size(), shortCommit(impactMap.commit), unaffected.size(), impactMap.tests.size());
+        return unaffected;
+    }
+
+    private static boolean isAffected(Footprint footprint, Map<String, Change> changes) {
+        for (String type : footprint.classes) {
+            Change change = changes.get(type);
+            if (change == null) {
+                continue;
+            }
+            if (change.structural) {
+                return true;
+            }
+            for (String locator : change.locators) {
+                if (footprint.locators.contains(locator)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the source changes between a commit and the working tree.
+     *
+     * @param commit The recorded commit.
+     * @return The changes per class name, or per file for changes that affect every test; null if git failed.
+     */
+    private static Map<String, Change> changesSince(String commit) {
+        List<String> diff = git("diff", "--relative", "--no-color", "--no-ext-diff", "-U0", commit, "--");
+        List<String> untracked = git("ls-files", "--others", "--exclude-standard");
+        if (diff == null || untracked == null) {
+            return null;
+        }
+        Map<String, Change> byFile = new TreeMap<>();
+        Change file = null;
+        for (String line : diff) {
+            if (line.startsWith("diff --git ")) {
+                file = byFile.computeIfAbsent(line.substring(line.lastIndexOf(" b/") + 3), key -> new Change());
+            } else if (file != null && !line.startsWith("+++") && !line.startsWith("---")
+                    && (line.startsWith("+") || line.startsWith("-"))) {
+                file.addLine(line.substring(1));
+            }
+        }
+        for (String path : untracked) {
+            byFile.computeIfAbsent(path, key -> new Change()).structural = true;
+        }
+
+        PathMatcher ignored = FileSystems.getDefault().getPathMatcher("glob:{" + TestConfig.get("impact.ignore", "*.md") + "}");
+        Path sourceRoot = Path.of(TestConfig.get("impact.sourceRoot", "src/test/java"));
+        List<Path> impactPaths = new ArrayList<>();
+        for (String impactPath : TestConfig.get("impact.paths", "src/test/java/pages").split(",")) {
+            if (!impactPath.isBlank()) {
+                impactPaths.add(Path.of(impactPath.trim()));
+            }
+        }
+        Map<String, Change> changes = new TreeMap<>();
+        byFile.forEach((name, change) -> {
+            Path path = Path.of(name);
+            if (ignored.matches(path) || ignored.matches(path.getFileName())) {
+                return;
+            }
+            change.structural |= change.lines == 0; // Renamed, binary or mode-only changes
+            boolean scoped = name.endsWith(".java") && impactPaths.stream().anyMatch(path::startsWith);
+            if (scoped && path.startsWith(sourceRoot)) {
+                String relative = sourceRoot.relativize(path).toString();
+                changes.put(relative.substring(0, relative.length() - ".java".length()).replace(File.separatorChar, '.'), change);
+            } else {
+                change.everything = true;
+                changes.put(name, change);
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * Runs a git command in the working directory.
+     *
+     * @return The output lines, or null if git is unavailable or the command failed.
+     */
+    private static List<String> git(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(arguments));
+        try {
+            Process process = new ProcessBuilder(command).directory(new File(System.getProperty("user.dir")))
+                    .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+            List<String> lines = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    lines.add(line);
+                }
+            }
+            if (process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0) {
+                return lines;
+            }
+            logger.warn("{} failed; running every test", String.join(" ", command));
+        } catch (IOException e) {
+            logger.warn("Failed to run git; running every test: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Builds a summary of the selection: the tests that ran and the tests carried over from the green run.
+     *
+     * @return The summary lines; empty unless impact.mode is select.
+     */
+    public static synchronized List<String> metricsSummary() {
+        List<String> summaries = new ArrayList<>();
+        if (mode() == Mode.SELECT && carriedOver != null) {
+            long carried = considered.stream().filter(carriedOver::contains).count();
+            summaries.add(String.format("Impact (select): ran %d of %d tests, %d carried over from the green run at %s",
+                    considered.size() - carried, considered.size(), carried, shortCommit(map().commit)));
+            considered.stream().filter(carriedOver::contains).forEach(test -> summaries.add("Impact (carried over): " + test));
+        }
+        return summaries;
+    }
+
+    /**
+     * Merges the footprints recorded in this run into the map and writes it, at the current commit.
+     * Footprints of tests that did not run are kept; no change since the recorded commit affected them.
+     * Called by {@link TestListener} when the suite finishes.
+     *
+     * @throws IOException If the working directory is not a git repository or the map cannot be written;
+     *                     the footprints of this run are kept.
+     */
+    public static synchronized void saveMap() throws IOException {
+        synchronized (recorded) {
+            if (mode() == Mode.OFF || recorded.isEmpty()) {
+                return;
+            }
+            List<String> head = git("rev-parse", "HEAD");
+            if (head == null || head.isEmpty()) {
+                throw new IOException("the working directory is not a git repository");
+            }
+            ImpactMap impactMap = map();
+            impactMap.tests.putAll(recorded);
+            impactMap.commit = head.get(0).trim();
+            Path path = path();
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "impact", ".tmp");
+            Files.writeString(temp, gson.toJson(impactMap), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Footprints of {} test(s) saved to {} at {}", recorded.size(), path, shortCommit(impactMap.commit));
+            recorded.clear();
+        }
+    }
+
+    /**
+     * Forgets the selection of this run, so the next suite of the JVM selects its tests again.
+     */
+    public static synchronized void reset() {
+        considered.clear();
+        carriedOver = null;
+    }
+
+    private static ImpactMap map() {
+        if (map != null) {
+            return map;
+        }
+        Path path = path();
+        if (Files.isRegularFile(path)) {
+            try {
+                map = gson.fromJson(Files.readString(path, StandardCharsets.UTF_8), ImpactMap.class);
+            } catch (IOException | JsonParseException e) {
+                logger.warn("Failed to read the impact map {}: {}", path, e.getMessage());
+            }
+        }
+        if (map == null || map.tests == null) {
+            map = new ImpactMap();
+        }
+        return map;
+    }
+
+    private static Path path() {
+        return Path.of(TestConfig.get("impact.file", "test-output/impact-map.json"));
+    }
+
+    private static String shortCommit(String commit) {
+        return commit != null && commit.length() > 10 ? commit.substring(0, 10) : commit;
+    }
+
+    /**
+     * Converts a locator of page source, e.g. By.id and "login-button", to its W3C form.
+     */
+    private static String locatorOf(String strategy, String literal) {
+        try {
+            String value = literal.replaceAll("\\\\(.)", "$1");
+            return LatencyListener.describe((By) By.class.getMethod(strategy, String.class).invoke(null, value));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saved footprints, and the commit they were recorded at.
+     */
+    private static class ImpactMap {
+        private String commit;
+        private Map<String, Footprint> tests = new TreeMap<>();
+    }
+
+    /**
+     * The classes and locators a test used, and whether it passed.
+     */
+    private static class Footprint {
+        private TreeSet<String> classes = new TreeSet<>();
+        private TreeSet<String> locators = new TreeSet<>();
+        private boolean passed;
+
+        private Footprint merge(Footprint other) {
+            classes.addAll(other.classes);
+            locators.addAll(other.locators);
+            passed &= other.passed;
+            return this;
+        }
+    }
+
+    /**
+     * The changed lines of a file: locator fields only, or anything else.
+     */
+    private static class Change {
+        private final Set<String> locators = new TreeSet<>();
+        private boolean structural;
+        private boolean everything;
+        private int lines;
+
+        private void addLine(String line) {
+            lines++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("//") || trimmed.startsWith("*") || trimmed.startsWith("/*")) {
+                return; // Comments and blank lines affect no test
+            }
+            Matcher matcher = LOCATOR_FIELD.matcher(line);
+            String locator = matcher.matches() ? locatorOf(matcher.group(1), matcher.group(2)) : null;
+            if (locator != null) {
+                locators.add(locator);
+            } else {
+                structural = true;
+            }
+        }
+    }
+}
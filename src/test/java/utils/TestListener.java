@@ -3,37 +3,82 @@ package utils;
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.ExtentTest;
 import com.aventstack.extentreports.MediaEntityBuilder;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import org.openqa.selenium.OutputType;
 import org.openqa.selenium.TakesScreenshot;
-import org.openqa.selenium.WebDriver;
 import org.testng.*;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
-public class TestListener implements ITestListener {
-    // ExtentReports instance for generating the report
+public class TestListener implements ITestListener, ISuiteListener, IInvokedMethodListener {
+    // ExtentReports instance for generating the report (report.mode=extent)
     private static ExtentReports extent;
+    // Journal the results are streamed to (report.mode=streaming)
+    private static ReportJournal journal;
     // ThreadLocal to ensure ExtentTest instances are thread-safe
     private static ThreadLocal<ExtentTest> extentTest = new ThreadLocal<>();
     // Path where the test report will be generated
     private static String reportPath;
+    // Result attribute holding the report-relative path of a failed test's screenshot
+    private static final String SCREENSHOT_ATTRIBUTE = "screenshotPath";
+    // Result attribute holding the requests the network policy saved during a test
+    private static final String NETWORK_ATTRIBUTE = "networkSummary";
+    // Result attribute holding how long a finished test occupied its worker thread, in milliseconds
+    private static final String SLOT_ATTRIBUTE = "slotMillis";
+    // Time the current test started occupying its worker thread, including its @BeforeMethod and retried attempts
+    private static final ThreadLocal<Long> slotStart = new ThreadLocal<>();
 
     /**
-     * Called when the test suite starts.
-     * Initializes the Extent report.
+     * Called when the suite starts.
+     * Initializes a single Extent report shared by every &lt;test&gt; block of the suite,
+     * so parallel browsers write into one merged report.
      *
-     * @param context The context of the test suite.
+     * @param suite The suite being run.
      */
     @Override
-    public void onStart(ITestContext context) {
-        System.out.println("Starting Test Suite: " + context.getName());
+    public void onStart(ISuite suite) {
+        synchronized (TestListener.class) {
+            if (extent == null && journal == null) { // Skip if already initialized by another registration of this listener
+                initializeReport(suite);
+            }
+        }
+    }
+
+    /**
+     * Creates the report for the suite: an Extent report kept in memory until the suite finishes,
+     * or, with report.mode=streaming, a journal every result is appended to as soon as it is known.
+     *
+     * @param suite The suite being run.
+     */
+    private static void initializeReport(ISuite suite) {
+        System.out.println("Starting Suite: " + suite.getName());
         String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-        // Define the report path using a timestamp to ensure uniqueness
-        reportPath = System.getProperty("user.dir") + File.separator + "test-output" + File.separator + "ExtentReport_" + timeStamp + ".html";
+        // Define the report path using a timestamp to ensure uniqueness; report.dir separates the reports of shards
+        reportPath = ArtifactPipeline.reportDirectory().resolve("ExtentReport_" + timeStamp + ".html").toString();
+
+        if ("streaming".equalsIgnoreCase(TestConfig.get("report.mode", "extent"))) {
+            Path journalPath = Path.of(reportPath.replaceFirst("\\.html$", ".jsonl"));
+            try {
+                journal = new ReportJournal(journalPath, TestConfig.getInt("report.flushIntervalMs", 2000));
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("event", "suite-start");
+                record.put("suite", suite.getName());
+                record.put("time", System.currentTimeMillis());
+                journal.append(record, true);
+                System.out.println("Streaming test results to: " + journalPath);
+                return;
+            } catch (IOException e) {
+                System.err.println("Failed to open report journal, falling back to the Extent report: " + e.getMessage());
+            }
+        }
 
         // Initialize ExtentSparkReporter for HTML report generation
         ExtentSparkReporter spark = new ExtentSparkReporter(reportPath);
@@ -47,6 +92,16 @@ public class TestListener implements ITestListener {
         System.out.println("Extent report initialized at: " + reportPath);
     }
 
+    /**
+     * Called when a &lt;test&gt; block starts.
+     *
+     * @param context The context of the test block.
+     */
+    @Override
+    public void onStart(ITestContext context) {
+        System.out.println("Starting Test: " + context.getName());
+    }
+
     /**
      * Called when an individual test starts.
      *
@@ -55,7 +110,17 @@ public class TestListener implements ITestListener {
     @Override
     public void onTestStart(ITestResult result) {
         System.out.println("Starting Test: " + result.getName());
-        ExtentTest test = extent.createTest(result.getMethod().getMethodName());
+        if (extent == null) {
+            return; // Streaming mode writes the whole result once the test has finished
+        }
+        String browser = result.getTestContext().getCurrentXmlTest().getParameter("browser");
+        ExtentTest test;
+        synchronized (extent) { // Tests of several browsers are created concurrently
+            test = extent.createTest(result.getMethod().getMethodName() + (browser != null ? " [" + browser + "]" : ""));
+        }
+        if (browser != null) {
+            test.assignDevice(browser); // Group results by browser in the merged report
+        }
         extentTest.set(test); // Set the ExtentTest instance to the current thread
     }
 
@@ -71,6 +136,11 @@ public class TestListener implements ITestListener {
         if (test != null) {
             test.pass("Test passed"); // Log test passed status in the report
         }
+        attachNetworkSummary(result);
+        recordDuration(result);
+        journal(result, "PASS", false);
+        RetryAnalyzer.recordOutcome(result);
+        TestImpact.end(result);
     }
 
     /**
@@ -94,12 +164,17 @@ public class TestListener implements ITestListener {
             } else {
                 test.fail("Test failed without throwing an exception");
             }
-        } else {
+        } else if (journal == null) {
             System.err.println("Failed to log test result; ExtentTest instance is null.");
         }
 
-        // Capture screenshot for the failed test
-        captureScreenshot(result);
+        // Attach the screenshot captured for the failed test
+        attachScreenshot(result);
+        attachNetworkSummary(result);
+        recordDuration(result);
+        journal(result, "FAIL", true);
+        RetryAnalyzer.recordOutcome(result);
+        TestImpact.end(result);
     }
 
     /**
@@ -114,6 +189,12 @@ public class TestListener implements ITestListener {
         if (test != null) {
             test.skip(result.getThrowable()); // Log skipped test in the report
         }
+        attachNetworkSummary(result);
+        journal(result, "SKIP", false);
+        if (!result.wasRetried()) {
+            slotStart.remove(); // A retried attempt keeps counting towards the duration of the test
+            TestImpact.end(result);
+        }
     }
 
     /**
@@ -128,60 +209,273 @@ public class TestListener implements ITestListener {
         if (test != null) {
             test.warning("Test failed but within success percentage");
         }
+        attachNetworkSummary(result);
+        journal(result, "WARNING", false);
     }
 
     /**
-     * Called when the test suite finishes.
+     * Called when a &lt;test&gt; block finishes.
      *
-     * @param context The context of the test suite.
+     * @param context The context of the test block.
      */
     @Override
     public void onFinish(ITestContext context) {
-        System.out.println("Ending Test Suite: " + context.getName());
+        System.out.println("Ending Test: " + context.getName());
+        extentTest.remove(); // Clean up ThreadLocal to prevent memory leaks
+    }
+
+    /**
+     * Called when the suite finishes.
+     * Writes the merged results of every &lt;test&gt; block to the report.
+     *
+     * @param suite The suite that was run.
+     */
+    @Override
+    public void onFinish(ISuite suite) {
+        synchronized (TestListener.class) {
+            if (extent != null || journal != null) { // Skip if already flushed by another registration of this listener
+                flushReport(suite);
+            }
+        }
+    }
+
+    /**
+     * Flushes the Extent report, or closes the journal and renders the report from it,
+     * and prints the framework metrics.
+     *
+     * @param suite The suite that was run.
+     */
+    private static void flushReport(ISuite suite) {
+        System.out.println("Ending Suite: " + suite.getName());
         try {
-            if (extent != null) {
+            ArtifactPipeline.drain(Duration.ofSeconds(30)); // Make sure every screenshot is on disk
+            attachLatencies(); // Command latency percentiles, when metrics.latency is enabled
+            if (journal != null) {
+                closeJournal(suite);
+                ReportRenderer.render(journal.getPath(), Path.of(reportPath)); // Render the HTML from the journal
+            } else {
                 extent.flush(); // Write the test results to the report
-                System.out.println("Extent report generated successfully at: " + reportPath);
             }
+            System.out.println("Extent report generated successfully at: " + reportPath);
+            WebDriverPool.allMetrics().forEach(System.out::println); // Print WebDriver pool metrics
+            System.out.println(BrowserContextIsolation.metricsSummary()); // Print browser context creation times
+            System.out.println(AuthStateCache.metricsSummary()); // Print login state cache metrics
+            ElementStateEngine.metricsSummary().forEach(System.out::println); // Print wait latency per strategy
+            LocatorCache.metricsSummary().forEach(System.out::println); // Print locator cache hit ratios
+            LatencyListener.metricsSummary().forEach(System.out::println); // Print command latency percentiles
+            DriverFactory.metricsSummary().forEach(System.out::println); // Print browser start-up times per launch profile
+            GridCapacity.metricsSummary().forEach(System.out::println); // Print how long session requests waited for a Grid slot
+            System.out.println(NetworkPolicy.metricsSummary()); // Print requests and bytes saved by the network policy
+            System.out.println(ReplayProxy.metricsSummary()); // Print archive hits and misses of the replay proxy
+            RetryAnalyzer.metricsSummary().forEach(System.out::println); // Print retries and flaky tests
+            DurationScheduler.metricsSummary(suite).forEach(System.out::println); // Print predicted versus actual makespan
+            TestImpact.metricsSummary().forEach(System.out::println); // Print the tests carried over
         } catch (Exception e) {
             System.err.println("Failed to generate Extent report: " + e.getMessage());
             e.printStackTrace();
         } finally {
-            extentTest.remove(); // Clean up ThreadLocal to prevent memory leaks
+            saveStatistics();
+            extent = null;
+            journal = null;
+        }
+    }
+
+    /**
+     * Saves the statistics that accumulate over runs, and forgets the test impact selection of this run.
+     * Each is saved on its own, so a failure of one, or of the report, does not lose the others.
+     */
+    private static void saveStatistics() {
+        try {
+            RetryAnalyzer.saveStatistics(); // Add this run to the flake statistics
+        } catch (IOException e) {
+            System.err.println("Failed to save flake statistics: " + e.getMessage());
+        }
+        try {
+            TestImpact.saveMap(); // Save the footprints of the tests that ran
+        } catch (IOException e) {
+            System.err.println("Failed to save the impact map: " + e.getMessage());
+        }
+        TestImpact.reset();
+    }
+
+    /**
+     * Adds the command latency percentiles recorded by the {@link LatencyListener} to the report:
+     * as a table node in the Extent report, or as a metric record in the journal that {@link ReportRenderer}
+     * turns into the same node.
+     */
+    private static void attachLatencies() {
+        List<String[]> table = LatencyListener.percentileTable();
+        if (table.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("event", "metric");
+            record.put("name", "Command latency");
+            record.put("table", table);
+            journal.append(record, false);
+        } else {
+            extent.createTest("Command latency").info(MarkupHelper.createTable(table.toArray(new String[0][])));
         }
     }
 
     /**
-     * Captures a screenshot on test failure.
+     * Marks the run as complete in the journal and closes it.
+     *
+     * @param suite The suite that was run.
+     * @throws IOException If the journal cannot be closed.
+     */
+    private static void closeJournal(ISuite suite) throws IOException {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("event", "suite-end");
+        record.put("suite", suite.getName());
+        record.put("time", System.currentTimeMillis());
+        journal.append(record, true);
+        journal.close();
+    }
+
+    /**
+     * Appends the result of a finished test to the journal, if results are streamed.
      *
      * @param result The result of the test execution.
+     * @param status The report status of the test.
+     * @param flush  Whether to write the record to disk immediately.
      */
-    private void captureScreenshot(ITestResult result) {
-        Object testClass = result.getInstance();
-        WebDriver driver = null;
+    private static void journal(ITestResult result, String status, boolean flush) {
+        ReportJournal current = journal;
+        if (current == null) {
+            return;
+        }
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("event", "test");
+        record.put("class", result.getTestClass().getRealClass().getSimpleName());
+        record.put("name", result.getMethod().getMethodName());
+        record.put("browser", result.getTestContext().getCurrentXmlTest().getParameter("browser"));
+        record.put("status", status);
+        record.put("start", result.getStartMillis());
+        record.put("end", result.getEndMillis());
+        Throwable throwable = result.getThrowable();
+        if (throwable != null) {
+            record.put("message", String.valueOf(throwable.getMessage()));
+            record.put("stackTrace", org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace(throwable));
+        }
+        Object screenshotPath = result.getAttribute(SCREENSHOT_ATTRIBUTE);
+        if (screenshotPath != null) {
+            record.put("screenshot", screenshotPath.toString());
+        }
+        Object network = result.getAttribute(NETWORK_ATTRIBUTE);
+        if (network != null) {
+            record.put("network", network.toString());
+        }
+        Object slot = result.getAttribute(SLOT_ATTRIBUTE);
+        if (slot != null) {
+            record.put("slot", slot);
+        }
+        current.append(record, flush);
+    }
 
-        // Retrieve the WebDriver instance from the test class
-        try {
-            driver = (WebDriver) testClass.getClass().getField("driver").get(testClass);
-        } catch (Exception e) {
-            System.err.println("Failed to get WebDriver instance: " + e.getMessage());
+    /**
+     * Called before every method invocation. Marks when a test starts occupying its worker thread:
+     * at its first @BeforeMethod, or at the test method itself if it has none. From there on, the pages and
+     * locators the test uses are recorded for test impact analysis.
+     *
+     * @param method The method about to be invoked.
+     * @param result The result of the invocation.
+     */
+    @Override
+    public void beforeInvocation(IInvokedMethod method, ITestResult result) {
+        boolean startsTest = method.isTestMethod() || method.getTestMethod().isBeforeMethodConfiguration();
+        if (startsTest && slotStart.get() == null) {
+            slotStart.set(System.currentTimeMillis());
+            TestImpact.begin(method.getTestMethod().getRealClass());
+        }
+    }
+
+    /**
+     * Records how long a finished test occupied its worker thread in the {@link DurationStore},
+     * for the scheduling of later runs. A shard that streams its results leaves the duration in the journal
+     * instead, for the merge step to record (see {@link ShardMerger}).
+     *
+     * @param result The result of the test execution.
+     */
+    private static void recordDuration(ITestResult result) {
+        Long start = slotStart.get();
+        slotStart.remove();
+        long millis = System.currentTimeMillis() - (start != null ? start : result.getStartMillis());
+        result.setAttribute(SLOT_ATTRIBUTE, millis);
+        if (journal != null && ShardPlan.current() != null) {
             return;
         }
+        DurationStore.record(DurationStore.testName(result.getTestClass().getRealClass(), result.getMethod().getMethodName(),
+                result.getTestContext().getCurrentXmlTest().getParameter("browser")), millis);
+    }
 
-        // Check if the driver supports taking screenshots
-        if (driver != null && driver instanceof TakesScreenshot) {
-            String screenshotPath = "screenshots" + File.separator + result.getName() + "_" + System.currentTimeMillis() + ".png";
-            File screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.FILE);
-            try {
-                org.apache.commons.io.FileUtils.copyFile(screenshot, new File(screenshotPath));
-                ExtentTest test = extentTest.get();
-                if (test != null) {
-                    // Attach the screenshot to the test report
-                    test.fail("Screenshot", MediaEntityBuilder.createScreenCaptureFromPath(screenshotPath).build());
-                }
-            } catch (IOException e) {
-                System.err.println("Failed to capture screenshot: " + e.getMessage());
+    /**
+     * Called right after a test method returns, on the test thread and before any @AfterMethod
+     * returns the browser to the pool. Collects what the network policy saved and the replay proxy answered
+     * during the test, fails the test if it missed the replay archive in strict mode (replay.strict), and grabs
+     * the screenshot bytes of a failed test; encoding to disk happens on the artifact pipeline.
+     *
+     * @param method The invoked method.
+     * @param result The result of the invocation.
+     */
+    @Override
+    public void afterInvocation(IInvokedMethod method, ITestResult result) {
+        if (!method.isTestMethod()) {
+            return;
+        }
+        DriverSession session = DriverSession.currentOrNull();
+        if (session == null) {
+            return;
+        }
+        String network = NetworkPolicy.testSummary(session.getDriver());
+        ReplayProxy.Usage replay = ReplayProxy.drain(session.getDriver());
+        if (replay != null) {
+            network = network != null ? network + "; " + replay.describe() : replay.describe();
+            if (replay.violatesStrictMode() && result.getStatus() == ITestResult.SUCCESS) {
+                result.setStatus(ITestResult.FAILURE);
+                result.setThrowable(new AssertionError("replay.strict: requests not in the replay archive: " + replay.getMissedRequests()));
             }
         }
+        if (network != null) {
+            result.setAttribute(NETWORK_ATTRIBUTE, network);
+        }
+        if (result.getStatus() != ITestResult.FAILURE || !(session.getDriver() instanceof TakesScreenshot)) {
+            return;
+        }
+        try {
+            byte[] png = ((TakesScreenshot) session.getDriver()).getScreenshotAs(OutputType.BYTES);
+            result.setAttribute(SCREENSHOT_ATTRIBUTE, ArtifactPipeline.submitScreenshot(result.getName(), png));
+        } catch (Exception e) {
+            System.err.println("Failed to capture screenshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Attaches the screenshot captured for a failed test to the report.
+     * The file may still be being written; the report only references it by path.
+     *
+     * @param result The result of the test execution.
+     */
+    private void attachScreenshot(ITestResult result) {
+        Object screenshotPath = result.getAttribute(SCREENSHOT_ATTRIBUTE);
+        ExtentTest test = extentTest.get();
+        if (screenshotPath != null && test != null) {
+            // Attach the screenshot to the test report
+            test.fail("Screenshot", MediaEntityBuilder.createScreenCaptureFromPath(screenshotPath.toString()).build());
+        }
+    }
+
+    /**
+     * Adds the requests the network policy saved and the replay proxy answered during a test to the report.
+     *
+     * @param result The result of the test execution.
+     */
+    private void attachNetworkSummary(ITestResult result) {
+        Object network = result.getAttribute(NETWORK_ATTRIBUTE);
+        ExtentTest test = extentTest.get();
+        if (network != null && test != null) {
+            test.info("Network: " + network);
+        }
     }
 }
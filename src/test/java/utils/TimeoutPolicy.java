@@ -0,0 +1,60 @@
+package utils;
+
+import org.openqa.selenium.remote.AbstractDriverOptions;
+
+import java.time.Duration;
+
+/**
+ * Central timeout settings, loaded from test-config.properties (timeout.* keys, in seconds).
+ * Implicit waits are always zero: every wait in the framework is explicit, so negative checks
+ * such as isElementPresent return immediately instead of blocking for the implicit wait.
+ */
+public class TimeoutPolicy {
+
+    /**
+     * The operations that have their own timeout.
+     */
+    public enum Operation {
+        // Waiting for an element to become visible or clickable
+        ELEMENT("timeout.element", 10),
+        // Waiting for document.readyState to become complete
+        PAGE_READY("timeout.pageReady", 30),
+        // WebDriver page load timeout for driver.get()
+        PAGE_LOAD("timeout.pageLoad", 30),
+        // WebDriver script timeout for executeScript/executeAsyncScript
+        SCRIPT("timeout.script", 30);
+
+        private final String key;
+        private final int defaultSeconds;
+
+        Operation(String key, int defaultSeconds) {
+            this.key = key;
+            this.defaultSeconds = defaultSeconds;
+        }
+    }
+
+    /**
+     * Returns the timeout configured for an operation.
+     *
+     * @param operation The operation.
+     * @return The timeout.
+     */
+    public static Duration get(Operation operation) {
+        return Duration.ofSeconds(Math.max(0, TestConfig.getInt(operation.key, operation.defaultSeconds)));
+    }
+
+    /**
+     * Applies the driver-level timeouts to browser options, so they are part of the new session's
+     * capabilities instead of costing extra round trips after start-up.
+     *
+     * @param options The browser options.
+     * @param <T>     The options type.
+     * @return The same options, for chaining.
+     */
+    public static <T extends AbstractDriverOptions<?>> T applyTo(T options) {
+        options.setImplicitWaitTimeout(Duration.ZERO);
+        options.setPageLoadTimeout(get(Operation.PAGE_LOAD));
+        options.setScriptTimeout(get(Operation.SCRIPT));
+        return options;
+    }
+}
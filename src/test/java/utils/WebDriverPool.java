@@ -0,0 +1,344 @@
+package utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, per-browser pool of warm WebDriver sessions.
+ * Sessions are leased to the calling thread and reset (instead of quit) when they are returned,
+ * so browser start-up is only paid once per pooled session rather than once per test class.
+ * With isolation=context, each lease runs in a fresh browser context instead (see {@link BrowserContextIsolation}),
+ * which is disposed on return.
+ */
+public class WebDriverPool {
+
+    // Logger for logging messages related to pool activity
+    private static final Logger logger = LoggerFactory.getLogger(WebDriverPool.class);
+    // One pool per browser name
+    private static final Map<String, WebDriverPool> pools = new ConcurrentHashMap<>();
+    // Lease held by the current thread, if any
+    private static final ThreadLocal<PooledDriver> currentLease = new ThreadLocal<>();
+    // Script used to wipe web storage when a session is returned to the pool
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+
+    static {
+        // Quit every pooled browser when the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(WebDriverPool::shutdownAll, "webdriver-pool-shutdown"));
+    }
+
+    private final String browser;
+    private final int maxSize;
+    private final int maxUses;
+    private final long acquireTimeoutSeconds;
+    // Idle sessions ready to be leased, most recently returned first
+    private final LinkedBlockingDeque<PooledDriver> idle = new LinkedBlockingDeque<>();
+    // Bounds the number of live sessions (idle + leased) for this browser
+    private final Semaphore capacity;
+
+    // Pool metrics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a pool for the specified browser using the pool settings from test-config.properties.
+     *
+     * @param browser The name of the browser (e.g., "chrome", "firefox", "edge").
+     */
+    private WebDriverPool(String browser) {
+        this.browser = browser;
+        this.maxSize = Math.max(1, TestConfig.getInt("pool." + browser + ".size", TestConfig.getInt("pool.size", 2)));
+        this.maxUses = Math.max(1, TestConfig.getInt("pool.maxUses", 50));
+        this.acquireTimeoutSeconds = TestConfig.getInt("pool.acquireTimeoutSeconds", 120);
+        this.capacity = new Semaphore(maxSize, true);
+        prewarm(Math.min(maxSize, TestConfig.getInt("pool.warmup", 1)));
+    }
+
+    /**
+     * Returns the pool for the specified browser, creating it on first use.
+     *
+     * @param browser The name of the browser.
+     * @return The pool serving that browser.
+     */
+    public static WebDriverPool forBrowser(String browser) {
+        return pools.computeIfAbsent(browser.toLowerCase(), WebDriverPool::new);
+    }
+
+    /**
+     * Leases a WebDriver to the current thread. If the thread already holds a lease, the same driver is returned.
+     * Blocks while all sessions of this browser are leased.
+     *
+     * @return A healthy, reset WebDriver.
+     * @throws IllegalStateException If the thread already holds a lease of another browser's pool.
+     */
+    public WebDriver acquire() {
+        PooledDriver lease = currentLease.get();
+        if (lease != null) {
+            if (!lease.browser().equals(browser)) {
+                throw new IllegalStateException("The current thread already holds a " + lease.browser()
+                        + " session; release it before acquiring a " + browser + " session");
+            }
+            return lease.driver;
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!capacity.tryAcquire(acquireTimeoutSeconds, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out after " + acquireTimeoutSeconds
+                        + "s waiting for a " + browser + " session from the pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a " + browser + " session", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            lease = takeHealthyIdle();
+            if (lease != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                lease = new PooledDriver(DriverFactory.getDriver(browser));
+            }
+        } catch (RuntimeException e) {
+            capacity.release(); // Give the slot back if the browser could not be started
+            throw e;
+        }
+
+        lease.uses++;
+        lease.isolated = BrowserContextIsolation.isEnabled() && BrowserContextIsolation.open(lease.driver);
+        currentLease.set(lease);
+        return lease.driver;
+    }
+
+    /**
+     * Returns the current thread's lease to the pool of its browser. Does nothing if the thread holds no lease.
+     */
+    public static void releaseCurrent() {
+        PooledDriver lease = currentLease.get();
+        if (lease != null) {
+            currentLease.remove();
+            forBrowser(lease.browser()).release(lease);
+        }
+    }
+
+    /**
+     * Marks the current thread's lease to be quit when it is released instead of going back to the pool,
+     * e.g. because the browser may be broken. Does nothing if the thread holds no lease.
+     */
+    public static void discardCurrent() {
+        PooledDriver lease = currentLease.get();
+        if (lease != null) {
+            lease.discard = true;
+        }
+    }
+
+    /**
+     * Resets a returned session and puts it back in the idle queue, or evicts it if it is worn out or unhealthy.
+     *
+     * @param lease The returned session.
+     */
+    private void release(PooledDriver lease) {
+        try {
+            if (lease.uses >= maxUses) {
+                logger.info("Evicting {} session after {} uses", browser, lease.uses);
+                evict(lease);
+            } else if (lease.discard) {
+                logger.info("Evicting discarded {} session", browser);
+                evict(lease);
+            } else if (lease.isolated ? BrowserContextIsolation.close(lease.driver) : reset(lease.driver)) {
+                idle.addFirst(lease);
+            } else {
+                evict(lease);
+            }
+        } finally {
+            capacity.release();
+        }
+    }
+
+    /**
+     * Clears cookies and web storage and parks the browser on about:blank.
+     *
+     * @param driver The driver to reset.
+     * @return True if the reset succeeded, otherwise false.
+     */
+    private boolean reset(WebDriver driver) {
+        try {
+            driver.manage().deleteAllCookies();
+            ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            logger.warn("Failed to reset {} session: {}", browser, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Takes idle sessions until a healthy one is found, evicting unhealthy ones on the way.
+     *
+     * @return A healthy idle session, or null if none is available.
+     */
+    private PooledDriver takeHealthyIdle() {
+        PooledDriver candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            if (isHealthy(candidate.driver)) {
+                return candidate;
+            }
+            logger.warn("Evicting unhealthy {} session", browser);
+            evict(candidate);
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the browser behind a session still responds.
+     *
+     * @param driver The driver to check.
+     * @return True if the session responds, otherwise false.
+     */
+    private boolean isHealthy(WebDriver driver) {
+        try {
+            driver.getWindowHandle();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Quits a session and removes it from the pool.
+     *
+     * @param lease The session to evict.
+     */
+    private void evict(PooledDriver lease) {
+        evictions.incrementAndGet();
+        BrowserContextIsolation.forget(lease.driver);
+        try {
+            lease.driver.quit();
+        } catch (Exception e) {
+            logger.warn("Error while quitting evicted {} session: {}", browser, e.getMessage());
+        }
+    }
+
+    /**
+     * Starts the requested number of sessions in the background so the first tests find warm browsers.
+     *
+     * @param count The number of sessions to start.
+     */
+    private void prewarm(int count) {
+        if (count <= 0) {
+            return;
+        }
+        ExecutorService warmers = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "webdriver-pool-warmup-" + browser);
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            warmers.submit(() -> {
+                if (!capacity.tryAcquire()) {
+                    return; // Tests already hold every slot
+                }
+                try {
+                    idle.addLast(new PooledDriver(DriverFactory.getDriver(browser)));
+                } catch (Exception e) {
+                    logger.warn("Failed to pre-warm {} session: {}", browser, e.getMessage());
+                } finally {
+                    capacity.release();
+                }
+            });
+        }
+        warmers.shutdown();
+        logger.info("Pre-warming {} {} session(s), pool size {}", count, browser, maxSize);
+    }
+
+    /**
+     * Records the time a caller spent waiting for a free slot.
+     *
+     * @param nanos The wait time in nanoseconds.
+     */
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Builds a one-line summary of the pool metrics.
+     *
+     * @return The metrics summary.
+     */
+    public String metricsSummary() {
+        long leases = hits.get() + misses.get();
+        double hitRatio = leases == 0 ? 0 : (double) hits.get() / leases;
+        double avgWaitMs = leases == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / leases;
+        return String.format("%s pool: size=%d, leases=%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, avgWait=%.1fms, maxWait=%.1fms",
+                browser, maxSize, leases, hits.get(), misses.get(), hitRatio, evictions.get(),
+                avgWaitMs, maxWaitNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Builds metrics summaries for every pool created in this JVM.
+     *
+     * @return One summary line per browser pool.
+     */
+    public static List<String> allMetrics() {
+        List<String> summaries = new ArrayList<>();
+        pools.values().forEach(pool -> summaries.add(pool.metricsSummary()));
+        return summaries;
+    }
+
+    /**
+     * Quits every idle session of every pool.
+     */
+    public static void shutdownAll() {
+        for (WebDriverPool pool : pools.values()) {
+            PooledDriver lease;
+            while ((lease = pool.idle.pollFirst()) != null) {
+                BrowserContextIsolation.forget(lease.driver);
+                try {
+                    lease.driver.quit();
+                } catch (Exception e) {
+                    logger.warn("Error while quitting {} session: {}", pool.browser, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A pooled session together with its usage counter.
+     */
+    private class PooledDriver {
+        private final WebDriver driver;
+        private int uses;
+        // Set by discardCurrent(); the session is quit on release
+        private boolean discard;
+        // Whether the current lease runs in its own browser context
+        private boolean isolated;
+
+        private PooledDriver(WebDriver driver) {
+            this.driver = driver;
+        }
+
+        private String browser() {
+            return browser;
+        }
+    }
+}
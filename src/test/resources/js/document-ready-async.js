@@ -0,0 +1,30 @@
+// Blocks (asynchronously) until document.readyState is "complete" or the timeout expires.
+// arguments[0]: timeout in milliseconds.
+// arguments[1]: true if "interactive" is enough (EAGER page load strategy).
+var timeoutMs = arguments[0];
+var interactiveReady = arguments[1] === true;
+var done = arguments[arguments.length - 1];
+
+function isReady() {
+    return document.readyState === 'complete' || (interactiveReady && document.readyState === 'interactive');
+}
+
+if (isReady()) {
+    done(true);
+    return;
+}
+
+var timer = setTimeout(function () {
+    document.removeEventListener('readystatechange', onChange);
+    done(isReady());
+}, timeoutMs);
+
+function onChange() {
+    if (isReady()) {
+        clearTimeout(timer);
+        document.removeEventListener('readystatechange', onChange);
+        done(true);
+    }
+}
+
+document.addEventListener('readystatechange', onChange);
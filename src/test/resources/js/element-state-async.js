@@ -0,0 +1,47 @@
+// Blocks (asynchronously) until a batch of element conditions holds or the timeout expires.
+// A MutationObserver and a readystatechange listener re-evaluate the conditions as soon as the DOM changes;
+// a slow re-check timer covers changes that do not mutate the DOM, such as CSS transitions.
+// arguments[0]: array of [using, value, state, expectedText, cachedElement] entries.
+// arguments[1]: URL the cached elements were resolved on, or null.
+// arguments[2]: timeout in milliseconds.
+// arguments[3]: re-check interval in milliseconds.
+var conditions = arguments[0];
+var cacheUrl = arguments[1];
+var timeoutMs = arguments[2];
+var recheckMs = arguments[3];
+var done = arguments[arguments.length - 1];
+
+var initial = evaluate(conditions, cacheUrl);
+if (initial.ready) {
+    done(initial);
+    return;
+}
+
+var finished = false;
+var observer = new MutationObserver(check);
+var recheck = setInterval(check, recheckMs);
+var timer = setTimeout(function () {
+    finish(evaluate(conditions, cacheUrl));
+}, timeoutMs);
+
+function finish(result) {
+    if (finished) {
+        return;
+    }
+    finished = true;
+    observer.disconnect();
+    clearInterval(recheck);
+    clearTimeout(timer);
+    document.removeEventListener('readystatechange', check);
+    done(result);
+}
+
+function check() {
+    var result = evaluate(conditions, cacheUrl);
+    if (result.ready) {
+        finish(result);
+    }
+}
+
+observer.observe(document, {subtree: true, childList: true, attributes: true, characterData: true});
+document.addEventListener('readystatechange', check);
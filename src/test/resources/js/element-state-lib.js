@@ -0,0 +1,92 @@
+// Shared functions of the element state scripts used by utils.ElementStateEngine.
+// Conditions are [using, value, state, expectedText, cachedElement] entries.
+
+function find(using, value) {
+    switch (using) {
+        case 'id':
+            return document.getElementById(value);
+        case 'name':
+            return document.getElementsByName(value)[0] || null;
+        case 'class name':
+            return document.getElementsByClassName(value)[0] || null;
+        case 'css selector':
+            return document.querySelector(value);
+        case 'xpath':
+            return document.evaluate(value, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+        case 'tag name':
+            return document.getElementsByTagName(value)[0] || null;
+        case 'link text':
+        case 'partial link text':
+            var links = document.getElementsByTagName('a');
+            for (var i = 0; i < links.length; i++) {
+                var text = (links[i].innerText || '').trim();
+                if (using === 'link text' ? text === value : text.indexOf(value) !== -1) {
+                    return links[i];
+                }
+            }
+            return null;
+    }
+    throw new Error('Unsupported locator strategy: ' + using);
+}
+
+function isVisible(el) {
+    // Options are displayed whenever their enclosing select is, like WebElement.isDisplayed()
+    if (el.tagName === 'OPTION' || el.tagName === 'OPTGROUP') {
+        var select = el.closest('select');
+        return select !== null && isVisible(select);
+    }
+    if (typeof el.checkVisibility === 'function'
+            && !el.checkVisibility({checkOpacity: true, checkVisibilityCSS: true})) {
+        return false;
+    }
+    var style = window.getComputedStyle(el);
+    if (style.display === 'none' || style.visibility === 'hidden' || style.visibility === 'collapse') {
+        return false;
+    }
+    var rect = el.getBoundingClientRect();
+    return rect.width > 0 && rect.height > 0;
+}
+
+function isSatisfied(el, state, expectedText) {
+    if (!el) {
+        return false;
+    }
+    if (state === 'PRESENT') {
+        return true;
+    }
+    if (!isVisible(el)) {
+        return false;
+    }
+    if (state === 'CLICKABLE') {
+        return !el.disabled;
+    }
+    if (state === 'TEXT_EQUALS') {
+        return (el.innerText || el.textContent || '').trim() === expectedText;
+    }
+    return true;
+}
+
+// Evaluates the conditions, reusing the cached element of a condition (entry index 4) while it is still
+// attached to the document and the page is still on cacheUrl; otherwise the locator is resolved again.
+// Returns {ready: true, elements: [...], cached: [...], url: ...} when every condition holds,
+// otherwise {ready: false, pending: index, url: ...}.
+function evaluate(conditions, cacheUrl) {
+    var url = window.location.href;
+    var useCache = cacheUrl === url;
+    var elements = [];
+    var cached = [];
+    for (var i = 0; i < conditions.length; i++) {
+        var condition = conditions[i];
+        var element = useCache && condition[4] && condition[4].isConnected ? condition[4] : null;
+        var hit = element !== null && isSatisfied(element, condition[2], condition[3]);
+        if (!hit) {
+            element = find(condition[0], condition[1]);
+        }
+        if (!isSatisfied(element, condition[2], condition[3])) {
+            return {ready: false, pending: i, url: url};
+        }
+        elements.push(element);
+        cached.push(hit);
+    }
+    return {ready: true, elements: elements, cached: cached, url: url};
+}
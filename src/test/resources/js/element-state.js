@@ -0,0 +1,4 @@
+// Evaluates a batch of element conditions in a single WebDriver round trip.
+// arguments[0]: array of [using, value, state, expectedText, cachedElement] entries.
+// arguments[1]: URL the cached elements were resolved on, or null.
+return evaluate(arguments[0], arguments[1]);
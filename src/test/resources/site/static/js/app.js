@@ -0,0 +1,278 @@
+// Behaviour of the hand-written saucedemo stand-in: login, session cookie, cart in localStorage,
+// sorting, menu and the checkout flow. Imitates what the page objects rely on in the real application.
+(function () {
+    'use strict';
+
+    var PASSWORD = 'secret_sauce';
+    var USERS = ['standard_user', 'locked_out_user', 'problem_user', 'performance_glitch_user', 'error_user', 'visual_user'];
+    var PRODUCTS = {
+        0: {name: 'Sauce Labs Bike Light', price: 9.99, desc: "A red light isn't the desired state in testing but it sure helps when riding your bike at night. Water-resistant with 3 lighting modes, 1 AAA battery included."},
+        1: {name: 'Sauce Labs Bolt T-Shirt', price: 15.99, desc: 'Get your testing superhero on with the Sauce Labs bolt T-shirt. From American Apparel, 100% ringspun combed cotton, heather gray with red bolt.'},
+        2: {name: 'Sauce Labs Onesie', price: 7.99, desc: "Rib snap infant onesie for the junior automation engineer in development. Reinforced 3-snap bottom closure, two-needle hemmed sleeved and bottom won't unravel."},
+        3: {name: 'Test.allTheThings() T-Shirt (Red)', price: 15.99, desc: 'This classic Sauce Labs t-shirt is perfect to wear when cozying up to your keyboard to automate a few tests. Super-soft and comfy ringspun combed cotton.'},
+        4: {name: 'Sauce Labs Backpack', price: 29.99, desc: 'carry.allTheThings() with the sleek, streamlined Sly Pack that melds uncompromising style with unequaled laptop and tablet protection.'},
+        5: {name: 'Sauce Labs Fleece Jacket', price: 49.99, desc: "It's not every day that you come across a midweight quarter-zip fleece jacket capable of handling everything from a relaxing day outdoors to a busy day at the office."}
+    };
+
+    function $(selector) {
+        return document.querySelector(selector);
+    }
+
+    function $$(selector) {
+        return Array.prototype.slice.call(document.querySelectorAll(selector));
+    }
+
+    function slug(name) {
+        return name.toLowerCase().replace(/[^a-z0-9]+/g, '-').replace(/^-|-$/g, '');
+    }
+
+    function sessionUser() {
+        var match = document.cookie.match(/(?:^|;\s*)session-username=([^;]*)/);
+        return match ? decodeURIComponent(match[1]) : null;
+    }
+
+    function cart() {
+        try {
+            return JSON.parse(window.localStorage.getItem('cart-contents')) || [];
+        } catch (e) {
+            return [];
+        }
+    }
+
+    function saveCart(ids) {
+        window.localStorage.setItem('cart-contents', JSON.stringify(ids));
+        updateBadge();
+    }
+
+    function updateBadge() {
+        var link = $('.shopping_cart_link');
+        if (!link) {
+            return;
+        }
+        var badge = $('.shopping_cart_badge');
+        var count = cart().length;
+        if (count === 0 && badge) {
+            badge.remove();
+        } else if (count > 0) {
+            if (!badge) {
+                badge = document.createElement('span');
+                badge.className = 'shopping_cart_badge';
+                badge.setAttribute('data-test', 'shopping-cart-badge');
+                link.appendChild(badge);
+            }
+            badge.textContent = String(count);
+        }
+    }
+
+    function showError(message) {
+        $$('[data-test="error"]').forEach(function (error) {
+            error.hidden = error.textContent !== message;
+        });
+        $$('.form_input').forEach(function (input) {
+            input.classList.add('input_error');
+        });
+    }
+
+    function initLogin() {
+        $('#login-button').addEventListener('click', function (event) {
+            event.preventDefault();
+            var username = $('#user-name').value;
+            var password = $('#password').value;
+            if (!username) {
+                showError('Epic sadface: Username is required');
+            } else if (!password) {
+                showError('Epic sadface: Password is required');
+            } else if (USERS.indexOf(username) < 0 || password !== PASSWORD) {
+                showError('Epic sadface: Username and password do not match any user in this service');
+            } else if (username === 'locked_out_user') {
+                showError('Epic sadface: Sorry, this user has been locked out.');
+            } else {
+                document.cookie = 'session-username=' + encodeURIComponent(username) + '; path=/';
+                window.location.href = 'inventory.html';
+            }
+        });
+    }
+
+    function initMenu() {
+        var menu = $('.bm-menu-wrap');
+        $('#react-burger-menu-btn').addEventListener('click', function () {
+            menu.hidden = false;
+        });
+        $('#react-burger-cross-btn').addEventListener('click', function () {
+            menu.hidden = true;
+        });
+        $('#reset_sidebar_link').addEventListener('click', function (event) {
+            event.preventDefault();
+            saveCart([]);
+            window.location.reload();
+        });
+        $('#logout_sidebar_link').addEventListener('click', function (event) {
+            event.preventDefault();
+            document.cookie = 'session-username=; path=/; expires=Thu, 01 Jan 1970 00:00:00 GMT';
+            window.localStorage.removeItem('cart-contents');
+            window.location.href = './';
+        });
+    }
+
+    function initCartButtons() {
+        var ids = cart();
+        $$('[data-product-id]').forEach(function (button) {
+            var id = Number(button.getAttribute('data-product-id'));
+            var adds = button.id.indexOf('add-to-cart-') === 0;
+            button.hidden = adds === (ids.indexOf(id) >= 0);
+            button.addEventListener('click', function () {
+                var current = cart().filter(function (other) {
+                    return other !== id;
+                });
+                if (adds) {
+                    current.push(id);
+                }
+                saveCart(current);
+                $$('[data-product-id="' + id + '"]').forEach(function (other) {
+                    other.hidden = other.id.indexOf('add-to-cart-') === 0 ? adds : !adds;
+                });
+            });
+        });
+    }
+
+    function initInventory() {
+        var list = $('.inventory_list');
+        $('.product_sort_container').addEventListener('change', function (event) {
+            var order = event.target.value;
+            var items = $$('.inventory_item');
+            items.sort(function (a, b) {
+                var pa = PRODUCTS[a.getAttribute('data-id')];
+                var pb = PRODUCTS[b.getAttribute('data-id')];
+                if (order === 'lohi' || order === 'hilo') {
+                    return order === 'lohi' ? pa.price - pb.price : pb.price - pa.price;
+                }
+                return order === 'az' ? pa.name.localeCompare(pb.name) : pb.name.localeCompare(pa.name);
+            });
+            items.forEach(function (item) {
+                list.appendChild(item);
+            });
+            $('.active_option').textContent = event.target.options[event.target.selectedIndex].text;
+        });
+        $$('.inventory_item_name').forEach(function (name) {
+            name.addEventListener('click', function (event) {
+                event.preventDefault();
+                window.location.href = 'inventory-item.html?id=' + name.closest('.inventory_item').getAttribute('data-id');
+            });
+        });
+    }
+
+    function initItem() {
+        var id = Number(new URLSearchParams(window.location.search).get('id'));
+        var product = PRODUCTS[id];
+        var details = $('.inventory_details_container');
+        if (!product) {
+            details.textContent = 'ITEM NOT FOUND';
+            return;
+        }
+        var key = slug(product.name);
+        details.innerHTML =
+            '<div class="inventory_details_desc_container">'
+            + '<div class="inventory_details_name large_size" data-test="inventory-item-name"></div>'
+            + '<div class="inventory_details_desc large_size" data-test="inventory-item-desc"></div>'
+            + '<div class="inventory_details_price" data-test="inventory-item-price"></div>'
+            + '<button class="btn btn_primary btn_small btn_inventory" id="add-to-cart" data-product-id="' + id + '">Add to cart</button>'
+            + '<button class="btn btn_secondary btn_small btn_inventory" id="remove" data-product-id="' + id + '">Remove</button>'
+            + '</div>';
+        $('.inventory_details_name').textContent = product.name;
+        $('.inventory_details_desc').textContent = product.desc;
+        $('.inventory_details_price').textContent = '$' + product.price.toFixed(2);
+        $('#add-to-cart').id = 'add-to-cart-' + key;
+        $('#remove').id = 'remove-' + key;
+        $('#back-to-products').addEventListener('click', function () {
+            window.location.href = 'inventory.html';
+        });
+    }
+
+    function initCart() {
+        var list = $('.cart_list');
+        cart().forEach(function (id) {
+            var product = PRODUCTS[id];
+            var item = document.createElement('div');
+            item.className = 'cart_item';
+            item.setAttribute('data-id', String(id));
+            item.innerHTML = '<div class="cart_quantity">1</div><div class="inventory_item_name"></div>'
+                + '<div class="inventory_item_price"></div>'
+                + '<button class="btn btn_secondary btn_small cart_button" id="remove-' + slug(product.name) + '">Remove</button>';
+            item.querySelector('.inventory_item_name').textContent = product.name;
+            item.querySelector('.inventory_item_price').textContent = '$' + product.price.toFixed(2);
+            item.querySelector('button').addEventListener('click', function () {
+                saveCart(cart().filter(function (other) {
+                    return other !== id;
+                }));
+                item.remove();
+            });
+            list.appendChild(item);
+        });
+        $('#continue-shopping').addEventListener('click', function () {
+            window.location.href = 'inventory.html';
+        });
+        $('#checkout').addEventListener('click', function () {
+            window.location.href = 'checkout-step-one.html';
+        });
+    }
+
+    function initCheckoutInformation() {
+        $('#continue').addEventListener('click', function (event) {
+            event.preventDefault();
+            if (!$('#first-name').value) {
+                showError('Error: First Name is required');
+            } else if (!$('#last-name').value) {
+                showError('Error: Last Name is required');
+            } else if (!$('#postal-code').value) {
+                showError('Error: Postal Code is required');
+            } else {
+                window.location.href = 'checkout-step-two.html';
+            }
+        });
+        $('#cancel').addEventListener('click', function () {
+            window.location.href = 'cart.html';
+        });
+    }
+
+    function initCheckoutOverview() {
+        var total = cart().reduce(function (sum, id) {
+            return sum + PRODUCTS[id].price;
+        }, 0);
+        $('.summary_subtotal_label').textContent = 'Item total: $' + total.toFixed(2);
+        $('#finish').addEventListener('click', function () {
+            saveCart([]);
+            window.location.href = 'checkout-complete.html';
+        });
+        $('#cancel').addEventListener('click', function () {
+            window.location.href = 'inventory.html';
+        });
+    }
+
+    function initCheckoutComplete() {
+        $('#back-to-products').addEventListener('click', function () {
+            window.location.href = 'inventory.html';
+        });
+    }
+
+    var page = document.body.getAttribute('data-page');
+    if (page === 'login') {
+        initLogin();
+        return;
+    }
+    // Every other page requires a session, like the real application
+    if (!sessionUser()) {
+        window.location.replace('./');
+        return;
+    }
+    initMenu();
+    updateBadge();
+    ({
+        inventory: initInventory,
+        item: initItem,
+        cart: initCart,
+        'checkout-information': initCheckoutInformation,
+        'checkout-overview': initCheckoutOverview,
+        'checkout-complete': initCheckoutComplete
+    })[page]();
+    initCartButtons();
+})();